@@ -1,8 +1,17 @@
 package io.camunda.getstarted.repairShop;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
@@ -11,10 +20,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.camunda.getstarted.repairShop.service.CalendlyService;
+import io.camunda.getstarted.repairShop.service.JobCompletionVariables;
 import io.camunda.getstarted.repairShop.service.MembershipCheckService;
+import io.camunda.getstarted.repairShop.service.StripeDeferredInvoiceDrainer;
 import io.camunda.getstarted.repairShop.service.StripeInvoiceService;
 import io.camunda.zeebe.client.ZeebeClient;
 import io.camunda.zeebe.client.api.response.ActivatedJob;
+import io.camunda.zeebe.client.api.response.PublishMessageResponse;
 import io.camunda.zeebe.client.api.worker.JobClient;
 import io.camunda.zeebe.spring.client.EnableZeebeClient;
 import io.camunda.zeebe.spring.client.annotation.ZeebeWorker;
@@ -32,14 +44,24 @@ public class Worker {
     @Autowired
     private StripeInvoiceService stripeInvoiceService;
 
+    @Autowired
+    private StripeDeferredInvoiceDrainer stripeDeferredInvoiceDrainer;
+
     @Autowired
     private MembershipCheckService membershipCheckService;
 
     @Autowired
     private ZeebeClient zeebeClient;
 
+    @Autowired
+    private JobCompletionVariables completionVariables;
+
     /**
-     * Constants for process variables to ensure consistency
+     * Constants for process variables to ensure consistency.
+     *
+     * Each @ZeebeWorker lists the variables it reads in fetchVariables, aliases
+     * included, so jobs are activated without the rest of the instance's variables.
+     * A handler that starts reading another variable or alias must add it there.
      */
     public static class ProcessVariables {
         // Customer info
@@ -84,6 +106,25 @@ public class Worker {
         public static final String INVOICE_GENERATED = "InvoiceGenerated";
     }
 
+    /**
+     * Reports invoices that were deferred during a Stripe outage to their process
+     * instance once they have been created, with the same message a live invoice sends
+     */
+    @PostConstruct
+    public void registerDeferredInvoiceListener() {
+        stripeDeferredInvoiceDrainer.setCompletionListener((invoice, invoiceResult) -> {
+            logger.info("Sending message '{}' for deferred invoice {} with correlation key '{}'",
+                    MessageNames.INVOICE_GENERATED, invoiceResult.get("invoiceId"), invoice.processInstanceKey);
+            return zeebeClient.newPublishMessageCommand()
+                    .messageName(MessageNames.INVOICE_GENERATED)
+                    .correlationKey(invoice.processInstanceKey)
+                    // Zeebe drops a repeat with the same ID, in case the queue entry outlives a publish
+                    .messageId(invoice.invoiceKey)
+                    .variables(invoiceGeneratedMessage(invoiceResult, (String) invoiceResult.get("formattedAmount")))
+                    .send();
+        });
+    }
+
     public static void main(String[] args) {
         // This explicitly loads the DotenvConfig class before Spring Boot starts
         try {
@@ -131,26 +172,54 @@ public class Worker {
      * @param messageName    The name of the message
      * @param correlationKey The process instance key to correlate with
      * @param variables      The variables to include in the message
+     * @return The publish command in flight, failing if the broker rejects it
      */
-    private void sendMessage(String messageName, String correlationKey, Map<String, Object> variables) {
-        try {
-            logger.info("Sending message '{}' with correlation key '{}'", messageName, correlationKey);
-
-            zeebeClient.newPublishMessageCommand()
-                    .messageName(messageName)
-                    .correlationKey(correlationKey)
-                    .variables(variables)
-                    .send()
-                    .join();
+    private CompletionStage<PublishMessageResponse> sendMessage(String messageName, String correlationKey,
+            Map<String, Object> variables) {
+        logger.info("Sending message '{}' with correlation key '{}'", messageName, correlationKey);
+
+        return zeebeClient.newPublishMessageCommand()
+                .messageName(messageName)
+                .correlationKey(correlationKey)
+                .variables(variables)
+                .send()
+                .whenComplete((response, error) -> {
+                    if (error == null) {
+                        logger.info("Message '{}' sent successfully", messageName);
+                    } else {
+                        logger.error("Failed to send message '{}': {}", messageName, error.getMessage());
+                    }
+                });
+    }
 
-            logger.info("Message '{}' sent successfully", messageName);
-        } catch (Exception e) {
-            logger.error("Failed to send message '{}': {}", messageName, e.getMessage(), e);
-            throw new RuntimeException("Failed to send message: " + e.getMessage(), e);
-        }
+    /**
+     * Fails a job with one retry less if its completion, or a command chained on it,
+     * fails. Lets handlers return without waiting for the broker.
+     *
+     * @param errorMessage Prefix of the job's error message, as used by the handler's own failures
+     * @param commands     The completion and anything chained on it
+     */
+    private void failJobOnError(JobClient client, ActivatedJob job, String errorMessage, CompletionStage<?> commands) {
+        commands.whenComplete((result, error) -> {
+            if (error == null) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.error("{} for job {}", errorMessage, job.getKey(), cause);
+            client.newFailCommand(job.getKey())
+                    .retries(job.getRetries() - 1)
+                    .errorMessage(errorMessage + ": " + cause.getMessage())
+                    .send();
+        });
     }
 
-@ZeebeWorker(type = "CheckMembership")
+@ZeebeWorker(type = "CheckMembership", fetchVariables = {
+        ProcessVariables.CUSTOMER_NAME, "CustomerName", "name", "SignedUp", "SigningUp", "MembershipNumber",
+        // Read by preserveCustomerAndVehicleInfo
+        ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel",
+        "Model", ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription", "description",
+        ProcessVariables.BREAKDOWN_LOCATION, "VehicleLocation", "location", ProcessVariables.CUSTOMER_EMAIL,
+        "CustomerEmail", "email", "Breakdown", "towInfoAdditional", "extraInfo"})
 public void checkMembership(final JobClient client, final ActivatedJob job) {
     Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -194,7 +263,7 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
         preserveCustomerAndVehicleInfo(variables, resultVariables);
 
         client.newCompleteCommand(job.getKey())
-              .variables(resultVariables)
+              .variables(completionVariables.forCompletion(job, variables, resultVariables))
               .send()
               .exceptionally(throwable -> {
                   logger.error("Failed to complete membership check", throwable);
@@ -210,7 +279,58 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
 }
 
     /**
-     * Helper method to preserve customer and vehicle information
+     * Worker to validate many membership numbers at once, e.g. for fleet customers
+     * and partner imports. Accepts MembershipNumbers as a list or a comma-separated string.
+     */
+    @ZeebeWorker(type = "BatchCheckMembership", fetchVariables = {
+            "MembershipNumbers"})
+    public void batchCheckMembership(final JobClient client, final ActivatedJob job) {
+        Map<String, Object> variables = job.getVariablesAsMap();
+
+        try {
+            Collection<String> membershipNumbers = getStringList(variables, "MembershipNumbers");
+            logger.info("Validating batch of {} membership numbers", membershipNumbers.size());
+
+            Map<String, Boolean> validation = membershipCheckService.validateMembershipNumbers(membershipNumbers);
+
+            List<String> validNumbers = new ArrayList<>();
+            List<String> invalidNumbers = new ArrayList<>();
+            validation.forEach((membershipNumber, valid) -> {
+                if (valid) {
+                    validNumbers.add(membershipNumber);
+                } else {
+                    invalidNumbers.add(membershipNumber);
+                }
+            });
+
+            HashMap<String, Object> resultVariables = new HashMap<>();
+            resultVariables.put("MembershipValidation", validation);
+            resultVariables.put("ValidMembershipNumbers", validNumbers);
+            resultVariables.put("InvalidMembershipNumbers", invalidNumbers);
+            resultVariables.put("AllMembersValid", invalidNumbers.isEmpty());
+
+            logger.info("Batch membership check result: {} valid, {} invalid",
+                    validNumbers.size(), invalidNumbers.size());
+
+            client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
+                    .send()
+                    .exceptionally(throwable -> {
+                        logger.error("Failed to complete batch membership check", throwable);
+                        throw new RuntimeException("Could not complete batch membership check", throwable);
+                    });
+        } catch (Exception e) {
+            logger.error("Error checking batch of memberships", e);
+            client.newFailCommand(job.getKey())
+                    .retries(job.getRetries() - 1)
+                    .errorMessage("Error checking batch of memberships: " + e.getMessage())
+                    .send();
+        }
+    }
+
+    /**
+     * Helper method to preserve customer and vehicle information. Workers calling
+     * this must also fetch the variables it reads.
      */
     private void preserveCustomerAndVehicleInfo(Map<String, Object> variables, Map<String, Object> resultVariables) {
         // Vehicle information
@@ -273,7 +393,13 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
     /**
      * Worker to generate a Stripe invoice for the final amount
      */
-    @ZeebeWorker(type = "stripe-invoice")
+    @ZeebeWorker(type = "stripe-invoice", fetchVariables = {
+            ProcessVariables.REPAIR_COST, ProcessVariables.REPAIR_COSTS, ProcessVariables.FINAL_PRICE,
+            ProcessVariables.TOTAL_PRICE, ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.VEHICLE_MAKE,
+            "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model",
+            ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription",
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void generateStripeInvoice(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -322,22 +448,29 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
             logger.info("Vehicle: {}", vehicleDetails);
             logger.info("Amount: £{}", formattedPrice);
 
-            // Call the Stripe service to generate the actual invoice
-            Map<String, Object> invoiceResult;
-
             // Use test mode setting from the service (comes from configuration)
             boolean useTestMode = stripeInvoiceService.isUsingTestMode();
             logger.info("Using Stripe in {} mode", useTestMode ? "TEST" : "PRODUCTION");
 
+            // Get the process instance key for message correlation
+            String processInstanceKey = String.valueOf(job.getProcessInstanceKey());
+
+            // Call the Stripe service to generate the actual invoice. The live call is
+            // non-blocking, so this job thread is released while Stripe responds. While
+            // Stripe is down the invoice is queued instead and reported once created.
+            CompletableFuture<Map<String, Object>> invoiceFuture;
             if (useTestMode) {
-                invoiceResult = stripeInvoiceService.createTestInvoice(
+                invoiceFuture = CompletableFuture.completedFuture(stripeInvoiceService.createTestInvoice(
                         customerEmail,
                         customerName,
                         serviceDescription,
                         vehicleDetails,
-                        finalPrice);
+                        finalPrice));
             } else {
-                invoiceResult = stripeInvoiceService.generateInvoice(
+                // Keyed by the job, which keeps its key across retries, so a retry resumes this invoice
+                invoiceFuture = stripeInvoiceService.generateOrDeferInvoiceAsync(
+                        "stripe-invoice-" + job.getKey(),
+                        processInstanceKey,
                         customerEmail,
                         customerName,
                         serviceDescription,
@@ -345,65 +478,86 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
                         finalPrice);
             }
 
-            // Get the process instance key for message correlation
-            String processInstanceKey = String.valueOf(job.getProcessInstanceKey());
+            double invoicedPrice = finalPrice;
 
-            // Prepare result variables
-            HashMap<String, Object> resultVariables = new HashMap<>();
+            invoiceFuture.thenCompose(invoiceResult -> {
+                boolean deferred = Boolean.TRUE.equals(invoiceResult.get("deferred"));
 
-            // Add invoice data
-            resultVariables.put("invoiceGenerated", true);
-            resultVariables.put("invoiceId", invoiceResult.get("invoiceId"));
-            resultVariables.put("invoiceUrl", invoiceResult.get("invoiceUrl"));
-            resultVariables.put("invoicePdf", invoiceResult.get("invoicePdf"));
-            resultVariables.put("invoiceStatus", invoiceResult.get("status"));
-            resultVariables.put("invoiceTimestamp", invoiceResult.get("createdAt"));
+                // Prepare result variables
+                HashMap<String, Object> resultVariables = new HashMap<>();
 
-            // Add price information
-            resultVariables.put(ProcessVariables.FINAL_PRICE, finalPrice);
-            resultVariables.put(ProcessVariables.TOTAL_PRICE, totalPrice);
-            resultVariables.put(ProcessVariables.REPAIR_COST, repairCost);
-            resultVariables.put(ProcessVariables.REPAIR_COSTS, repairCost);
-            resultVariables.put("formattedInvoiceAmount", formattedPrice);
+                // Add invoice data
+                resultVariables.put("invoiceGenerated", !deferred);
+                resultVariables.put("invoiceDeferred", deferred);
+                resultVariables.put("invoiceId", invoiceResult.get("invoiceId"));
+                resultVariables.put("invoiceUrl", invoiceResult.get("invoiceUrl"));
+                resultVariables.put("invoicePdf", invoiceResult.get("invoicePdf"));
+                resultVariables.put("invoiceStatus", invoiceResult.get("status"));
+                resultVariables.put("invoiceTimestamp", invoiceResult.get("createdAt"));
 
-            // Preserve important customer and vehicle data
-            resultVariables.put(ProcessVariables.CUSTOMER_NAME, customerName);
-            resultVariables.put(ProcessVariables.CUSTOMER_EMAIL, customerEmail);
-            resultVariables.put(ProcessVariables.VEHICLE_MAKE, vehicleMake);
-            resultVariables.put(ProcessVariables.VEHICLE_MODEL, vehicleModel);
-            resultVariables.put(ProcessVariables.FAULT_DESCRIPTION, faultDescription);
-            resultVariables.put(ProcessVariables.PROCESS_INSTANCE_KEY, processInstanceKey);
-
-            // Preserve membership status
-            boolean membershipStatus = Boolean.TRUE.equals(variables.get(ProcessVariables.IS_MEMBER)) ||
-                    Boolean.TRUE.equals(variables.get("SignedUp")) ||
-                    Boolean.TRUE.equals(variables.get("SigningUp"));
+                // Add price information
+                resultVariables.put(ProcessVariables.FINAL_PRICE, invoicedPrice);
+                resultVariables.put(ProcessVariables.TOTAL_PRICE, totalPrice);
+                resultVariables.put(ProcessVariables.REPAIR_COST, repairCost);
+                resultVariables.put(ProcessVariables.REPAIR_COSTS, repairCost);
+                resultVariables.put("formattedInvoiceAmount", formattedPrice);
 
-            resultVariables.put(ProcessVariables.IS_MEMBER, membershipStatus);
+                // Preserve important customer and vehicle data
+                resultVariables.put(ProcessVariables.CUSTOMER_NAME, customerName);
+                resultVariables.put(ProcessVariables.CUSTOMER_EMAIL, customerEmail);
+                resultVariables.put(ProcessVariables.VEHICLE_MAKE, vehicleMake);
+                resultVariables.put(ProcessVariables.VEHICLE_MODEL, vehicleModel);
+                resultVariables.put(ProcessVariables.FAULT_DESCRIPTION, faultDescription);
+                resultVariables.put(ProcessVariables.PROCESS_INSTANCE_KEY, processInstanceKey);
 
-            // Preserve membership number if present
-            if (variables.containsKey("MembershipNumber")) {
-                resultVariables.put("MembershipNumber", variables.get("MembershipNumber"));
-            }
+                // Preserve membership status
+                boolean membershipStatus = Boolean.TRUE.equals(variables.get(ProcessVariables.IS_MEMBER)) ||
+                        Boolean.TRUE.equals(variables.get("SignedUp")) ||
+                        Boolean.TRUE.equals(variables.get("SigningUp"));
 
-            // Message variables for potential message subscribers
-            Map<String, Object> messageVariables = new HashMap<>();
-            messageVariables.put("invoiceId", invoiceResult.get("invoiceId"));
-            messageVariables.put("invoiceGenerated", true);
-            messageVariables.put("invoiceUrl", invoiceResult.get("invoiceUrl"));
-            messageVariables.put("invoiceAmount", formattedPrice);
-            messageVariables.put("invoiceTimestamp", invoiceResult.get("createdAt"));
+                resultVariables.put(ProcessVariables.IS_MEMBER, membershipStatus);
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
-                    .send()
-                    .join();
+                // Preserve membership number if present
+                if (variables.containsKey("MembershipNumber")) {
+                    resultVariables.put("MembershipNumber", variables.get("MembershipNumber"));
+                }
 
-            // Then send a message that the invoice has been generated
-            sendMessage(MessageNames.INVOICE_GENERATED, processInstanceKey, messageVariables);
+                if (deferred) {
+                    // The drainer sends the message once the deferred invoice exists
+                    return client.newCompleteCommand(job.getKey())
+                            .variables(completionVariables.forCompletion(job, variables, resultVariables))
+                            .send()
+                            .thenApply(completed -> "deferred");
+                }
 
-            logger.info("Invoice generation completed successfully. Invoice ID: {}", invoiceResult.get("invoiceId"));
+                // Message variables for potential message subscribers
+                Map<String, Object> messageVariables = invoiceGeneratedMessage(invoiceResult, formattedPrice);
+
+                // Complete the job first, then send a message that the invoice has been generated
+                return client.newCompleteCommand(job.getKey())
+                        .variables(completionVariables.forCompletion(job, variables, resultVariables))
+                        .send()
+                        .thenCompose(completed -> {
+                            logger.info("Sending message '{}' with correlation key '{}'",
+                                    MessageNames.INVOICE_GENERATED, processInstanceKey);
+                            return zeebeClient.newPublishMessageCommand()
+                                    .messageName(MessageNames.INVOICE_GENERATED)
+                                    .correlationKey(processInstanceKey)
+                                    .variables(messageVariables)
+                                    .send();
+                        })
+                        .thenApply(published -> invoiceResult.get("invoiceId"));
+            }).whenComplete((invoiceId, error) -> {
+                if (error == null) {
+                    logger.info("Invoice generation completed successfully. Invoice ID: {}", invoiceId);
+                    return;
+                }
+                logger.error("Error generating Stripe invoice", error);
+                client.newFailCommand(job.getKey())
+                        .retries(job.getRetries() - 1)
+                        .errorMessage("Error generating Stripe invoice: " + error.getMessage())
+                        .send();
+            });
 
         } catch (Exception e) {
             logger.error("Error generating Stripe invoice", e);
@@ -414,10 +568,27 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
         }
     }
 
+    /**
+     * Variables of the InvoiceGenerated message for a created invoice
+     */
+    private Map<String, Object> invoiceGeneratedMessage(Map<String, Object> invoiceResult, String formattedPrice) {
+        Map<String, Object> messageVariables = new HashMap<>();
+        messageVariables.put("invoiceId", invoiceResult.get("invoiceId"));
+        messageVariables.put("invoiceGenerated", true);
+        messageVariables.put("invoiceUrl", invoiceResult.get("invoiceUrl"));
+        messageVariables.put("invoiceAmount", formattedPrice);
+        messageVariables.put("invoiceTimestamp", invoiceResult.get("createdAt"));
+        return messageVariables;
+    }
+
     /**
      * Worker to inform customer of initial costs
      */
-    @ZeebeWorker(type = "inform-customer-init-cost")
+    @ZeebeWorker(type = "inform-customer-init-cost", fetchVariables = {
+            ProcessVariables.DEPOSIT_AMOUNT, ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make",
+            ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", ProcessVariables.CUSTOMER_EMAIL,
+            "CustomerEmail", "email", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void informCustomerInitialCost(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -481,16 +652,17 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
             messageVariables.put("paymentTimestamp", System.currentTimeMillis());
             messageVariables.put(ProcessVariables.INITIAL_COST_RECEIVED, true);
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
-                    .send()
-                    .join();
-
-            // Then send a message to simulate customer payment (for demo purposes)
+            // Complete the job first, then send a message to simulate customer payment (for demo
+            // purposes), without waiting on this job thread.
             // In a real implementation, this would be triggered by an actual payment event
-            logger.info("Simulating payment receipt by sending message for process instance: {}", processInstanceKey);
-            sendMessage(MessageNames.RECEIVE_INITIAL_COST, processInstanceKey, messageVariables);
+            failJobOnError(client, job, "Error informing customer of initial cost", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
+                    .send()
+                    .thenCompose(completed -> {
+                        logger.info("Simulating payment receipt by sending message for process instance: {}",
+                                processInstanceKey);
+                        return sendMessage(MessageNames.RECEIVE_INITIAL_COST, processInstanceKey, messageVariables);
+                    }));
 
         } catch (Exception e) {
             logger.error("Error in inform-customer-init-cost", e);
@@ -504,7 +676,12 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
     /**
      * Worker to notify receptionist of repair costs
      */
-    @ZeebeWorker(type = "notify-reception-costing")
+    @ZeebeWorker(type = "notify-reception-costing", fetchVariables = {
+            ProcessVariables.REPAIR_COST, ProcessVariables.REPAIR_COSTS, ProcessVariables.VEHICLE_MAKE,
+            "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model",
+            ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription",
+            ProcessVariables.CUSTOMER_NAME, "CustomerName", "name", ProcessVariables.CUSTOMER_EMAIL,
+            "CustomerEmail", "email", ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void notifyReceptionOfCosts(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -571,11 +748,10 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
             messageVariables.put("notifiedTimestamp", System.currentTimeMillis());
             messageVariables.put("vehicleDetails", vehicleMake + " " + vehicleModel);
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
-                    .send()
-                    .join();
+            // Complete the job without waiting on this job thread
+            failJobOnError(client, job, "Error notifying reception of costs", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
+                    .send());
 
             // Then send the message (if there are message-waiting tasks for this)
             // This is optional depending on your BPMN design
@@ -593,7 +769,12 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
     /**
      * Worker to process tow request from the initial form
      */
-    @ZeebeWorker(type = "process-tow-request")
+    @ZeebeWorker(type = "process-tow-request", fetchVariables = {
+            ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL,
+            "vehicleModel", "Model", ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription",
+            "description", ProcessVariables.BREAKDOWN_LOCATION, "VehicleLocation", "location",
+            "towInfoAdditional", "extraInfo", "additionalInfo", "towInfo", ProcessVariables.IS_MEMBER,
+            "SignedUp", "becomeMember", "SigningUp", "MembershipNumber"})
     public void processTowRequest(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -688,7 +869,7 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
 
             // Complete the job with result variables
             client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
                     .exceptionally((throwable -> {
                         logger.error("Failed to complete tow request processing", throwable);
@@ -704,7 +885,13 @@ public void checkMembership(final JobClient client, final ActivatedJob job) {
         }
     }
 
-@ZeebeWorker(type = "InitialCostCheck")
+@ZeebeWorker(type = "InitialCostCheck", fetchVariables = {
+        "SignedUp", "SigningUp", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name", "MembershipNumber",
+        // Read by preserveCustomerAndVehicleInfo
+        ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel",
+        "Model", ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription", "description",
+        ProcessVariables.BREAKDOWN_LOCATION, "VehicleLocation", "location", ProcessVariables.CUSTOMER_EMAIL,
+        "CustomerEmail", "email", "Breakdown", "towInfoAdditional", "extraInfo"})
 public void calculateInitialPayment(final JobClient client, final ActivatedJob job) {
     Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -806,7 +993,7 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
 
         // Complete the job
         client.newCompleteCommand(job.getKey())
-              .variables(resultVariables)
+              .variables(completionVariables.forCompletion(job, variables, resultVariables))
               .send()
               .exceptionally((throwable -> {
                   logger.error("Failed to complete deposit calculation", throwable);
@@ -826,7 +1013,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to calculate final price with member discount
      */
-    @ZeebeWorker(type = "CalculateFinalPrice")
+    @ZeebeWorker(type = "CalculateFinalPrice", fetchVariables = {
+            ProcessVariables.REPAIR_COSTS, ProcessVariables.REPAIR_COST, ProcessVariables.IS_MEMBER,
+            "SignedUp", "SigningUp", "MembershipNumber", ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make",
+            ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", ProcessVariables.FAULT_DESCRIPTION,
+            "extraDetails", "faultDescription", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email"})
     public void calculateFinalPrice(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -905,7 +1097,7 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
 
             // Complete the job
             client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
                     .exceptionally((throwable -> {
                         logger.error("Failed to complete price calculation", throwable);
@@ -924,7 +1116,14 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to process customer approval or denial
      */
-    @ZeebeWorker(type = "process-approval")
+    @ZeebeWorker(type = "process-approval", fetchVariables = {
+            "QuoteApprovalForm", "Approved", "approved", "approval", ProcessVariables.VEHICLE_MAKE,
+            "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model",
+            ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription",
+            ProcessVariables.REPAIR_COSTS, ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE,
+            ProcessVariables.TOTAL_PRICE, "formattedFinalPrice", ProcessVariables.IS_MEMBER, "SignedUp",
+            "SigningUp", "MembershipNumber", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email"})
     public void processApproval(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -1039,14 +1238,11 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
             messageVariables.put(ProcessVariables.QUOTE_APPROVED, approved);
             messageVariables.put("approvalTimestamp", System.currentTimeMillis());
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+            // Complete the job first, then send the message, without waiting on this job thread
+            failJobOnError(client, job, "Error processing approval", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
-                    .join();
-
-            // Then send the message
-            sendMessage(MessageNames.APPROVAL, processInstanceKey, messageVariables);
+                    .thenCompose(completed -> sendMessage(MessageNames.APPROVAL, processInstanceKey, messageVariables)));
 
         } catch (Exception e) {
             client.newFailCommand(job.getKey())
@@ -1059,7 +1255,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to process repair completion notification
      */
-    @ZeebeWorker(type = "repair-complete-notify")
+    @ZeebeWorker(type = "repair-complete-notify", fetchVariables = {
+            ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL,
+            "vehicleModel", "Model", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.REPAIR_COSTS,
+            ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE,
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void processRepairCompletion(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -1117,14 +1318,11 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
             messageVariables.put("completionTimestamp", System.currentTimeMillis());
             messageVariables.put("vehicleDetails", vehicleMake + " " + vehicleModel);
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+            // Complete the job first, then send the message, without waiting on this job thread
+            failJobOnError(client, job, "Error processing repair completion", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
-                    .join();
-
-            // Then send the message
-            sendMessage(MessageNames.WORKS_COMPLETE, processInstanceKey, messageVariables);
+                    .thenCompose(completed -> sendMessage(MessageNames.WORKS_COMPLETE, processInstanceKey, messageVariables)));
 
         } catch (Exception e) {
             client.newFailCommand(job.getKey())
@@ -1137,7 +1335,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to notify customer to book an appointment after repair
      */
-    @ZeebeWorker(type = "NotifyBookAppointment")
+    @ZeebeWorker(type = "NotifyBookAppointment", fetchVariables = {
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.CUSTOMER_NAME,
+            "CustomerName", "name", ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make",
+            ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", ProcessVariables.REPAIR_COSTS,
+            ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE,
+            ProcessVariables.IS_MEMBER, "MembershipNumber"})
     public void notifyBookAppointment(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -1205,7 +1408,7 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
 
             // Complete the task
             client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
                     .exceptionally((throwable -> {
                         logger.error("Error completing NotifyBookAppointment", throwable);
@@ -1224,7 +1427,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to offer collection times when quote is declined
      */
-    @ZeebeWorker(type = "OfferCollectionTimes")
+    @ZeebeWorker(type = "OfferCollectionTimes", fetchVariables = {
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.CUSTOMER_NAME,
+            "CustomerName", "name", ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make",
+            ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", ProcessVariables.REPAIR_COSTS,
+            ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE,
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void offerCollectionTimes(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -1294,7 +1502,7 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
 
             // Complete the task
             client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
                     .exceptionally((throwable -> {
                         logger.error("Error completing OfferCollectionTimes", throwable);
@@ -1313,7 +1521,13 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to process booking confirmation
      */
-    @ZeebeWorker(type = "process-booking")
+    @ZeebeWorker(type = "process-booking", fetchVariables = {
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.CUSTOMER_NAME,
+            "CustomerName", "name", ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make",
+            ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", "bookingConfirmed", "appointmentTime",
+            "bookingReference", ProcessVariables.REPAIR_COSTS, ProcessVariables.REPAIR_COST,
+            ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE, ProcessVariables.IS_MEMBER,
+            "SignedUp", "SigningUp", "MembershipNumber"})
     public void processBooking(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -1390,7 +1604,7 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
 
             // Complete the task with booking info
             client.newCompleteCommand(job.getKey())
-                    .variables(bookingInfo)
+                    .variables(completionVariables.forCompletion(job, variables, bookingInfo))
                     .send()
                     .exceptionally((throwable -> {
                         logger.error("Error completing ProcessBooking", throwable);
@@ -1409,7 +1623,13 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to process the customer satisfaction form with radio buttons
      */
-    @ZeebeWorker(type = "process-satisfaction")
+    @ZeebeWorker(type = "process-satisfaction", fetchVariables = {
+            "CustomerSatisfactionForm", "Satisfied", "satisfied", "customerSatisfied",
+            ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL,
+            "vehicleModel", "Model", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.REPAIR_COSTS,
+            ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE,
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void processApprovalForm(final JobClient client, final ActivatedJob job) {
         Map<String, Object> variables = job.getVariablesAsMap();
 
@@ -1492,7 +1712,7 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
 
             // Complete the task
             client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
                     .exceptionally((throwable -> {
                         logger.error("Error processing satisfaction form", throwable);
@@ -1511,7 +1731,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to send collection time notification (legacy implementation)
      */
-    @ZeebeWorker(type = "ArrangeCollection")
+    @ZeebeWorker(type = "ArrangeCollection", fetchVariables = {
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.CUSTOMER_NAME,
+            "CustomerName", "name", ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make",
+            ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", ProcessVariables.REPAIR_COSTS,
+            ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE,
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void arrangeCollection(final JobClient client, final ActivatedJob job) {
         try {
             Map<String, Object> variables = job.getVariablesAsMap();
@@ -1579,14 +1804,11 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
             messageVariables.put("collectionArranged", true);
             messageVariables.put("arrangedTimestamp", System.currentTimeMillis());
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+            // Complete the job first, then send the message, without waiting on this job thread
+            failJobOnError(client, job, "Error arranging collection", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
-                    .join();
-
-            // Then send the message
-            sendMessage(MessageNames.COLLECTION_ARRANGED, processInstanceKey, messageVariables);
+                    .thenCompose(completed -> sendMessage(MessageNames.COLLECTION_ARRANGED, processInstanceKey, messageVariables)));
 
         } catch (Exception e) {
             client.newFailCommand(job.getKey())
@@ -1599,7 +1821,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to send final quote notification
      */
-    @ZeebeWorker(type = "FinalQuote")
+    @ZeebeWorker(type = "FinalQuote", fetchVariables = {
+            ProcessVariables.REPAIR_COSTS, ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE,
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", ProcessVariables.VEHICLE_MAKE, "vehicleMake",
+            "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model", ProcessVariables.CUSTOMER_EMAIL,
+            "CustomerEmail", "email", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            "MembershipNumber"})
     public void sendFinalQuote(final JobClient client, final ActivatedJob job) {
         try {
             Map<String, Object> variables = job.getVariablesAsMap();
@@ -1684,14 +1911,11 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
             messageVariables.put("quoteSent", true);
             messageVariables.put("quoteTimestamp", System.currentTimeMillis());
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+            // Complete the job first, then send the message, without waiting on this job thread
+            failJobOnError(client, job, "Error sending quote", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
-                    .join();
-
-            // Then send the message
-            sendMessage(MessageNames.QUOTE_NOTIFICATION, processInstanceKey, messageVariables);
+                    .thenCompose(completed -> sendMessage(MessageNames.QUOTE_NOTIFICATION, processInstanceKey, messageVariables)));
 
         } catch (Exception e) {
             client.newFailCommand(job.getKey())
@@ -1704,7 +1928,12 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to notify reception of completed works
      */
-    @ZeebeWorker(type = "NotifyWorkComplete")
+    @ZeebeWorker(type = "NotifyWorkComplete", fetchVariables = {
+            ProcessVariables.VEHICLE_MAKE, "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL,
+            "vehicleModel", "Model", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.REPAIR_COSTS,
+            ProcessVariables.REPAIR_COST, ProcessVariables.FINAL_PRICE, ProcessVariables.TOTAL_PRICE,
+            ProcessVariables.IS_MEMBER, "SignedUp", "SigningUp", "MembershipNumber"})
     public void notifyWorkComplete(final JobClient client, final ActivatedJob job) {
         try {
             Map<String, Object> variables = job.getVariablesAsMap();
@@ -1777,14 +2006,11 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
             messageVariables.put("completionTimestamp", System.currentTimeMillis());
             messageVariables.put("vehicleDetails", vehicleMake + " " + vehicleModel);
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+            // Complete the job first, then send the message, without waiting on this job thread
+            failJobOnError(client, job, "Error notifying work completion", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
-                    .join();
-
-            // Then send the message
-            sendMessage(MessageNames.WORKS_COMPLETE, processInstanceKey, messageVariables);
+                    .thenCompose(completed -> sendMessage(MessageNames.WORKS_COMPLETE, processInstanceKey, messageVariables)));
 
         } catch (Exception e) {
             client.newFailCommand(job.getKey())
@@ -1797,7 +2023,13 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
     /**
      * Worker to send tow request
      */
-    @ZeebeWorker(type = "TowRequest")
+    @ZeebeWorker(type = "TowRequest", fetchVariables = {
+            ProcessVariables.BREAKDOWN_LOCATION, "VehicleLocation", "location", ProcessVariables.VEHICLE_MAKE,
+            "vehicleMake", "Make", ProcessVariables.VEHICLE_MODEL, "vehicleModel", "Model",
+            ProcessVariables.FAULT_DESCRIPTION, "extraDetails", "faultDescription", "towInfoAdditional",
+            "extraInfo", "additionalInfo", ProcessVariables.CUSTOMER_NAME, "CustomerName", "name",
+            ProcessVariables.CUSTOMER_EMAIL, "CustomerEmail", "email", ProcessVariables.IS_MEMBER, "SignedUp",
+            "SigningUp", "MembershipNumber"})
     public void sendTowRequest(final JobClient client, final ActivatedJob job) {
         try {
             Map<String, Object> variables = job.getVariablesAsMap();
@@ -1897,14 +2129,11 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
             messageVariables.put("vehicleDetails", vehicleDetails);
             messageVariables.put("breakdownLocation", location);
 
-            // Complete the job first
-            client.newCompleteCommand(job.getKey())
-                    .variables(resultVariables)
+            // Complete the job first, then send the message, without waiting on this job thread
+            failJobOnError(client, job, "Error sending tow request", client.newCompleteCommand(job.getKey())
+                    .variables(completionVariables.forCompletion(job, variables, resultVariables))
                     .send()
-                    .join();
-
-            // Then send the message
-            sendMessage(MessageNames.TOW_REQUEST, processInstanceKey, messageVariables);
+                    .thenCompose(completed -> sendMessage(MessageNames.TOW_REQUEST, processInstanceKey, messageVariables)));
 
         } catch (Exception e) {
             client.newFailCommand(job.getKey())
@@ -1949,6 +2178,34 @@ public void calculateInitialPayment(final JobClient client, final ActivatedJob j
         return null;
     }
 
+    /**
+     * Helper method to read a list of strings from a list variable or a
+     * comma-separated string variable
+     *
+     * @param variables The variable map
+     * @param key       The variable name
+     * @return The trimmed, non-empty entries, or an empty list if the variable is missing
+     */
+    private List<String> getStringList(Map<String, Object> variables, String key) {
+        List<String> values = new ArrayList<>();
+        Object value = variables.get(key);
+
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                if (item != null && !String.valueOf(item).trim().isEmpty()) {
+                    values.add(String.valueOf(item).trim());
+                }
+            }
+        } else if (value != null) {
+            Arrays.stream(String.valueOf(value).split(","))
+                    .map(String::trim)
+                    .filter(item -> !item.isEmpty())
+                    .forEach(values::add);
+        }
+
+        return values;
+    }
+
     /**
      * Helper method to get a numeric value from multiple possible variable names
      *
@@ -0,0 +1,90 @@
+package io.camunda.getstarted.repairShop.config;
+
+import io.camunda.getstarted.repairShop.repository.CsvMembershipRepository;
+import io.camunda.getstarted.repairShop.repository.MVStoreMembershipRepository;
+import io.camunda.getstarted.repairShop.repository.MappedMembershipRepository;
+import io.camunda.getstarted.repairShop.repository.MembershipJournal;
+import io.camunda.getstarted.repairShop.repository.MembershipRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Selects the membership register backend from membership.storage.type
+ */
+@Configuration
+public class MembershipRepositoryConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(MembershipRepositoryConfig.class);
+
+    // File path for the membership CSV file - configurable via application.properties or .env
+    @Value("${membership.data.file-path:src/main/resources/data/members.csv}")
+    private String membershipFilePath;
+
+    // Backend for the member register: csv, mmap or mvstore
+    @Value("${membership.storage.type:csv}")
+    private String storageType;
+
+    // Durability of new member records in the CSV journal: batch, interval or none
+    @Value("${membership.journal.durability:batch}")
+    private String journalDurability;
+
+    @Value("${membership.journal.sync-interval-ms:50}")
+    private long journalSyncIntervalMillis;
+
+    @Value("${membership.journal.max-batch-size:512}")
+    private int journalMaxBatchSize;
+
+    @Value("${membership.storage.mmap.file-path:src/main/resources/data/members.dat}")
+    private String mappedStorePath;
+
+    @Value("${membership.storage.mmap.sync-writes:true}")
+    private boolean mappedStoreSyncWrites;
+
+    @Value("${membership.storage.mvstore.file-path:src/main/resources/data/members.mv.db}")
+    private String mvStorePath;
+
+    @Value("${membership.storage.mvstore.sync-writes:true}")
+    private boolean mvStoreSyncWrites;
+
+    /**
+     * Creates the configured membership repository. Binary backends start out
+     * empty and are seeded once from the CSV file, which from then on is only
+     * an import/export format for them.
+     */
+    @Bean(destroyMethod = "close")
+    public MembershipRepository membershipRepository() throws IOException {
+        Path csvPath = Paths.get(membershipFilePath);
+        MembershipRepository repository;
+
+        switch (storageType.trim().toLowerCase()) {
+            case "csv":
+                return new CsvMembershipRepository(csvPath,
+                        MembershipJournal.Durability.fromString(journalDurability),
+                        journalSyncIntervalMillis, journalMaxBatchSize);
+            case "mmap":
+                repository = new MappedMembershipRepository(Paths.get(mappedStorePath), mappedStoreSyncWrites);
+                break;
+            case "mvstore":
+                repository = new MVStoreMembershipRepository(Paths.get(mvStorePath), mvStoreSyncWrites);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown membership.storage.type: " + storageType
+                        + " (expected csv, mmap or mvstore)");
+        }
+
+        if (repository.isEmpty() && Files.exists(csvPath)) {
+            int imported = repository.importCsv(csvPath);
+            logger.info("Seeded {} membership repository with {} members from {}",
+                    repository.getType(), imported, csvPath);
+        }
+        return repository;
+    }
+}
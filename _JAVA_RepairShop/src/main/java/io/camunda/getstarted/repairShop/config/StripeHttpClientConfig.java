@@ -0,0 +1,167 @@
+package io.camunda.getstarted.repairShop.config;
+
+import io.camunda.getstarted.repairShop.service.ApacheStripeTransport;
+import io.camunda.getstarted.repairShop.service.JdkStripeTransport;
+import io.camunda.getstarted.repairShop.service.StripeTransport;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared, connection-pooled HTTP client for the Stripe API. Connections are kept
+ * alive between calls, so the calls that make up one invoice reuse the same
+ * TCP/TLS session instead of handshaking each time. A non-blocking client with
+ * the same limits backs the asynchronous invoice pipeline.
+ *
+ * With stripe.http.transport=jdk, java.net.http.HttpClient is used instead and
+ * calls are multiplexed over a few HTTP/2 connections; the Apache clients are
+ * then not created.
+ */
+@Configuration
+public class StripeHttpClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeHttpClientConfig.class);
+
+    // Upper bound on open connections to Stripe, shared by all stripe-invoice jobs
+    @Value("${stripe.http.max-connections:50}")
+    private int maxConnections;
+
+    // How long an idle connection is kept when Stripe does not send a Keep-Alive timeout
+    @Value("${stripe.http.keep-alive-ms:30000}")
+    private long keepAliveMillis;
+
+    @Value("${stripe.http.connect-timeout-ms:5000}")
+    private int connectTimeoutMillis;
+
+    @Value("${stripe.http.read-timeout-ms:30000}")
+    private int readTimeoutMillis;
+
+    // How long a call waits for a free pooled connection before failing
+    @Value("${stripe.http.pool-timeout-ms:5000}")
+    private int poolTimeoutMillis;
+
+    // Connections used by the jdk transport, each carries many concurrent calls
+    @Value("${stripe.http.http2-connections:2}")
+    private int http2Connections;
+
+    @Bean
+    @ConditionalOnProperty(name = "stripe.http.transport", havingValue = "apache", matchIfMissing = true)
+    public StripeTransport apacheStripeTransport(CloseableHttpClient stripeHttpClient,
+                                                 PoolingHttpClientConnectionManager stripeConnectionManager,
+                                                 CloseableHttpAsyncClient stripeAsyncHttpClient) {
+        return new ApacheStripeTransport(stripeHttpClient, stripeConnectionManager, stripeAsyncHttpClient);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "stripe.http.transport", havingValue = "jdk")
+    public StripeTransport jdkStripeTransport() {
+        return new JdkStripeTransport(http2Connections, connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "stripe.http.transport", havingValue = "apache", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager stripeConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                keepAliveMillis, TimeUnit.MILLISECONDS);
+        // Every call goes to the same host, so one route may use the whole pool
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "stripe.http.transport", havingValue = "apache", matchIfMissing = true)
+    public CloseableHttpClient stripeHttpClient(PoolingHttpClientConnectionManager stripeConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .setConnectionRequestTimeout(poolTimeoutMillis)
+                .build();
+
+        logger.info("Creating pooled Stripe HTTP client: max {} connections, keep-alive {} ms",
+                maxConnections, keepAliveMillis);
+
+        return HttpClients.custom()
+                .setConnectionManager(stripeConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "stripe.http.transport", havingValue = "apache", matchIfMissing = true)
+    public PoolingNHttpClientConnectionManager stripeAsyncConnectionManager() throws IOReactorException {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSoTimeout(readTimeoutMillis)
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(ioReactorConfig));
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "stripe.http.transport", havingValue = "apache", matchIfMissing = true)
+    public CloseableHttpAsyncClient stripeAsyncHttpClient(PoolingNHttpClientConnectionManager stripeAsyncConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .setConnectionRequestTimeout(poolTimeoutMillis)
+                .build();
+
+        CloseableHttpAsyncClient asyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(stripeAsyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .build();
+        // The I/O reactor threads only run once the client is started
+        asyncClient.start();
+        return asyncClient;
+    }
+
+    /**
+     * Honours the server's Keep-Alive timeout when present, otherwise uses the configured default
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            HeaderElementIterator elements = new BasicHeaderElementIterator(
+                    response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (elements.hasNext()) {
+                HeaderElement element = elements.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, keepAliveMillis);
+                    } catch (NumberFormatException ignored) {
+                        // Fall through to the default
+                    }
+                }
+            }
+            return keepAliveMillis;
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package io.camunda.getstarted.repairShop.controller;
+
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import io.camunda.getstarted.repairShop.service.MembershipCheckService;
+
+@RestController
+@RequestMapping("/membership")
+public class MembershipController {
+    private static final Logger logger = LoggerFactory.getLogger(MembershipController.class);
+
+    @Autowired
+    private MembershipCheckService membershipCheckService;
+
+    /**
+     * Looks up candidate membership numbers for a customer who has forgotten theirs
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<String>> searchByName(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        return ResponseEntity.ok(membershipCheckService.findMembershipNumbersByName(name, limit));
+    }
+
+    /**
+     * Bulk-imports members from a MembershipNumber,CustomerName CSV request body.
+     * The body is read as a stream, so large migrations are never buffered whole.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Integer>> importMembers(InputStream body) throws IOException {
+        Map<String, Integer> result = membershipCheckService.importMembers(
+                new InputStreamReader(body, StandardCharsets.UTF_8));
+        logger.info("Membership import finished: {}", result);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Streams the whole membership register out as a CSV download
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMembers() {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+            membershipCheckService.exportMembers(writer);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"members.csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
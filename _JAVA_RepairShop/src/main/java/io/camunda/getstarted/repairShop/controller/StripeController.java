@@ -0,0 +1,48 @@
+package io.camunda.getstarted.repairShop.controller;
+
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.camunda.getstarted.repairShop.service.StripeDeferredInvoiceDrainer;
+import io.camunda.getstarted.repairShop.service.StripeInvoiceService;
+import io.camunda.getstarted.repairShop.service.StripeStubServer;
+
+@RestController
+@RequestMapping("/stripe")
+public class StripeController {
+
+    @Autowired
+    private StripeInvoiceService stripeInvoiceService;
+
+    @Autowired
+    private StripeDeferredInvoiceDrainer stripeDeferredInvoiceDrainer;
+
+    // Only present when the local stand-in server is enabled for load tests
+    @Autowired(required = false)
+    private StripeStubServer stripeStubServer;
+
+    /**
+     * Runtime metrics of the Stripe integration, for checking pool sizing under load
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("transport", stripeInvoiceService.getTransportStats());
+        metrics.put("rateLimiter", stripeInvoiceService.getRateLimiterStats());
+        metrics.put("hedging", stripeInvoiceService.getHedgingStats());
+        metrics.put("payloadLogging", stripeInvoiceService.getPayloadLoggingStats());
+        metrics.put("customerCache", stripeInvoiceService.getCustomerCacheStats());
+        metrics.put("invoiceOutbox", stripeInvoiceService.getOutboxStats());
+        metrics.put("circuitBreaker", stripeInvoiceService.getCircuitBreakerStats());
+        metrics.put("deferredInvoices", stripeDeferredInvoiceDrainer.getStats());
+        if (stripeStubServer != null) {
+            metrics.put("stub", stripeStubServer.getStats());
+        }
+        return ResponseEntity.ok(metrics);
+    }
+}
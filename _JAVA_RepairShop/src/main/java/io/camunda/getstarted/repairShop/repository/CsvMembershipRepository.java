@@ -0,0 +1,161 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import io.camunda.getstarted.repairShop.service.MembershipIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Membership register kept in the original MembershipNumber,CustomerName CSV file.
+ * New members are appended through the group-commit {@link MembershipJournal}.
+ */
+public class CsvMembershipRepository implements MembershipRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvMembershipRepository.class);
+
+    public static final String HEADER = "MembershipNumber,CustomerName";
+
+    private final Path path;
+    private final MembershipJournal journal;
+    private MembershipFileWatcher watcher;
+
+    /**
+     * Opens the CSV file, creating it with a header if needed, and starts the append journal
+     */
+    public CsvMembershipRepository(Path path, MembershipJournal.Durability durability,
+                                   long syncIntervalMillis, int maxBatchSize) throws IOException {
+        this.path = path;
+        if (!Files.exists(path)) {
+            logger.info("Membership file does not exist, creating new file at: {}", path);
+            createMembershipFile(path);
+        }
+        this.journal = new MembershipJournal(path, durability, syncIntervalMillis, maxBatchSize);
+    }
+
+    @Override
+    public String getType() {
+        return "csv";
+    }
+
+    @Override
+    public void forEach(MemberVisitor visitor) throws IOException {
+        read(path, visitor);
+    }
+
+    @Override
+    public String findName(int number) throws IOException {
+        // The CSV file has no index, so a name lookup is a linear scan
+        String membershipNumber = MembershipIndex.format(number);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length >= 2 && parts[0].trim().equals(membershipNumber)) {
+                    return parts[1].trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Void> add(int number, String customerName) {
+        return journal.append(MembershipIndex.format(number) + "," + customerName + "\n");
+    }
+
+    @Override
+    public CompletableFuture<Void> addAll(Map<Integer, String> members) {
+        // One journal record for the whole batch, so it lands in a single sequential write
+        StringBuilder lines = new StringBuilder(members.size() * 24);
+        members.forEach((number, customerName) ->
+                lines.append(MembershipIndex.format(number)).append(',').append(customerName).append('\n'));
+        return journal.append(lines.toString());
+    }
+
+    @Override
+    public boolean isEmpty() throws IOException {
+        boolean[] empty = {true};
+        forEach((number, customerName) -> empty[0] = false);
+        return empty[0];
+    }
+
+    @Override
+    public synchronized void watch(ChangeListener listener) throws IOException {
+        if (watcher == null) {
+            watcher = new MembershipFileWatcher(path, new ChangeListener() {
+                @Override
+                public void memberAdded(int number, String customerName) {
+                    listener.memberAdded(number, customerName);
+                }
+
+                @Override
+                public void reloaded() {
+                    // The file may have been replaced, keep appending to the one now at the path
+                    try {
+                        journal.reopen();
+                    } catch (IOException e) {
+                        logger.error("Error reopening membership journal: {}", e.getMessage(), e);
+                    }
+                    listener.reloaded();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        journal.close();
+    }
+
+    /**
+     * Reads every member row of a membership CSV file. The header and malformed
+     * rows fail to parse as membership numbers and are skipped.
+     */
+    public static void read(Path csvPath, MemberVisitor visitor) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    continue;
+                }
+                int number = MembershipIndex.parse(line.substring(0, comma).trim());
+                if (number >= 0) {
+                    visitor.visit(number, line.substring(comma + 1).trim());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the membership CSV file with its header
+     */
+    private static void createMembershipFile(Path path) throws IOException {
+        File file = path.toFile();
+
+        // Create parent directories if needed
+        File parentDir = file.getAbsoluteFile().getParentFile();
+        if (!parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        // Create file with header
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(HEADER + "\n");
+        }
+
+        logger.info("Created new membership file at: {}", path);
+    }
+}
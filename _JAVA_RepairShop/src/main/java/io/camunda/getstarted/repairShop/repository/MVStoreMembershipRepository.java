@@ -0,0 +1,107 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Membership register kept in an embedded H2 MVStore file, a log-structured
+ * on-disk B-tree keyed by membership number.
+ */
+public class MVStoreMembershipRepository implements MembershipRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(MVStoreMembershipRepository.class);
+
+    private final Path path;
+    private final MVStore store;
+    private final MVMap<Integer, String> members;
+    private final boolean syncWrites;
+
+    /**
+     * Opens or creates the store file
+     * @param path       Location of the MVStore file
+     * @param syncWrites Whether every add is committed and synced before its future completes
+     */
+    public MVStoreMembershipRepository(Path path, boolean syncWrites) throws IOException {
+        this.path = path;
+        this.syncWrites = syncWrites;
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.store = new MVStore.Builder()
+                .fileName(path.toString())
+                .open();
+        this.members = store.openMap("members");
+
+        logger.info("Opened MVStore membership store at {} with {} members", path, members.size());
+    }
+
+    @Override
+    public String getType() {
+        return "mvstore";
+    }
+
+    @Override
+    public void forEach(MemberVisitor visitor) {
+        for (Map.Entry<Integer, String> entry : members.entrySet()) {
+            visitor.visit(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public String findName(int number) {
+        return members.get(number);
+    }
+
+    @Override
+    public CompletableFuture<Void> add(int number, String customerName) {
+        members.put(number, customerName);
+        if (syncWrites) {
+            store.commit();
+            store.sync();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAll(Map<Integer, String> batch) {
+        members.putAll(batch);
+        if (syncWrites) {
+            store.commit();
+            store.sync();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    @Override
+    public int importCsv(Path csvPath) throws IOException {
+        // Load all rows and commit once at the end
+        int[] imported = {0};
+        CsvMembershipRepository.read(csvPath, (number, customerName) -> {
+            members.put(number, customerName);
+            imported[0]++;
+        });
+        store.commit();
+        store.sync();
+        logger.info("Imported {} members from {} into {}", imported[0], csvPath, path);
+        return imported[0];
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+}
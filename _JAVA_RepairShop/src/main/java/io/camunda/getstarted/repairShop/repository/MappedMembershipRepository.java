@@ -0,0 +1,219 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import io.camunda.getstarted.repairShop.service.MembershipIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Membership register stored as fixed-width records in a memory-mapped file.
+ *
+ * The file holds one 64-byte record for every possible 6-digit membership number,
+ * so the record for a number sits at offset number * 64 and no lookup ever has to
+ * search or parse. Each record is laid out as:
+ * <pre>
+ *   byte 0      status flags (bit 0 = active member)
+ *   byte 1      length of the name in bytes
+ *   bytes 2-63  customer name, UTF-8, truncated to 62 bytes
+ * </pre>
+ * Unused records are all zeroes, so on file systems with sparse file support the
+ * full 64 MB register only takes up disk space for pages that hold members.
+ */
+public class MappedMembershipRepository implements MembershipRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedMembershipRepository.class);
+
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_NAME_BYTES = RECORD_SIZE - 2;
+
+    // Status flags held in the first byte of every record
+    public static final byte FLAG_ACTIVE = 0x01;
+
+    private static final long FILE_SIZE = (long) MembershipIndex.CAPACITY * RECORD_SIZE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean syncWrites;
+
+    /**
+     * Opens the record file, creating and sizing it if it does not exist yet
+     * @param path       Location of the record file
+     * @param syncWrites Whether every write is forced to disk before returning
+     */
+    public MappedMembershipRepository(Path path, boolean syncWrites) throws IOException {
+        this.path = path;
+        this.syncWrites = syncWrites;
+        boolean created = !Files.exists(path);
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+
+        logger.info("Opened memory-mapped membership store at {} ({})", path, created ? "new" : "existing");
+    }
+
+    @Override
+    public String getType() {
+        return "mmap";
+    }
+
+    /**
+     * Checks the active flag of a record without allocating
+     */
+    public boolean contains(int number) {
+        return (getFlags(number) & FLAG_ACTIVE) != 0;
+    }
+
+    /**
+     * @return The status flags byte of the record for a membership number
+     */
+    public byte getFlags(int number) {
+        return buffer.get(offsetOf(number));
+    }
+
+    /**
+     * Reads the customer name of an active record
+     * @return The name, or null if the number is not an active member
+     */
+    @Override
+    public String findName(int number) {
+        int offset = offsetOf(number);
+        if ((buffer.get(offset) & FLAG_ACTIVE) == 0) {
+            return null;
+        }
+        int length = buffer.get(offset + 1) & 0xff;
+        byte[] nameBytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            nameBytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an active member record in place
+     * @return An already completed future, the write is done when this returns
+     */
+    @Override
+    public CompletableFuture<Void> add(int number, String customerName) {
+        put(number, customerName);
+        if (syncWrites) {
+            buffer.force();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes a batch of records in place and forces the mapping once
+     */
+    @Override
+    public CompletableFuture<Void> addAll(Map<Integer, String> members) {
+        members.forEach(this::put);
+        if (syncWrites) {
+            buffer.force();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes an active member record. The flags byte is written last so a reader
+     * never sees an active record with a half-written name.
+     */
+    private void put(int number, String customerName) {
+        int offset = offsetOf(number);
+        byte[] nameBytes = truncate(customerName.getBytes(StandardCharsets.UTF_8));
+
+        buffer.put(offset, (byte) 0);
+        buffer.put(offset + 1, (byte) nameBytes.length);
+        for (int i = 0; i < nameBytes.length; i++) {
+            buffer.put(offset + 2 + i, nameBytes[i]);
+        }
+        for (int i = nameBytes.length; i < MAX_NAME_BYTES; i++) {
+            buffer.put(offset + 2 + i, (byte) 0);
+        }
+        buffer.put(offset, FLAG_ACTIVE);
+    }
+
+    /**
+     * Calls the visitor for every active record, in membership number order
+     */
+    @Override
+    public void forEach(MemberVisitor visitor) {
+        for (int number = 0; number < MembershipIndex.CAPACITY; number++) {
+            if (contains(number)) {
+                visitor.visit(number, findName(number));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (int number = 0; number < MembershipIndex.CAPACITY; number++) {
+            if (contains(number)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Imports members from a CSV file with a MembershipNumber,CustomerName header
+     * @return The number of members imported
+     */
+    @Override
+    public int importCsv(Path csvPath) throws IOException {
+        // Write all records first and force the mapping once at the end
+        int[] imported = {0};
+        CsvMembershipRepository.read(csvPath, (number, customerName) -> {
+            put(number, customerName);
+            imported[0]++;
+        });
+        buffer.force();
+        logger.info("Imported {} members from {} into {}", imported[0], csvPath, path);
+        return imported[0];
+    }
+
+    /**
+     * Forces outstanding writes to disk and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private static int offsetOf(int number) {
+        if (number < 0 || number >= MembershipIndex.CAPACITY) {
+            throw new IllegalArgumentException("Membership number out of range: " + number);
+        }
+        return number * RECORD_SIZE;
+    }
+
+    /**
+     * Cuts a UTF-8 name down to the record width without splitting a multi-byte character
+     */
+    private static byte[] truncate(byte[] nameBytes) {
+        if (nameBytes.length <= MAX_NAME_BYTES) {
+            return nameBytes;
+        }
+        int length = MAX_NAME_BYTES;
+        while (length > 0 && (nameBytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(nameBytes, 0, truncated, 0, length);
+        return truncated;
+    }
+}
@@ -0,0 +1,192 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import io.camunda.getstarted.repairShop.service.MembershipIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Watches the membership CSV file for out-of-band edits.
+ *
+ * Appends are picked up incrementally: only the bytes after the last fully read
+ * line are read and handed to the listener row by row. When the file has been
+ * rewritten instead (replaced, truncated, or changed before the last read
+ * position) the listener is asked to rebuild from the whole file, which is the
+ * only way removed members are noticed.
+ */
+public class MembershipFileWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MembershipFileWatcher.class);
+
+    // Bytes just before the read position that must be unchanged for an edit to count as an append
+    private static final int FINGERPRINT_LENGTH = 64;
+
+    private final Path path;
+    private final MembershipRepository.ChangeListener listener;
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    // Read position (always just after a newline), identity and tail bytes of the file as last seen
+    private long position;
+    private Object fileKey;
+    private byte[] fingerprint = new byte[0];
+
+    /**
+     * Records the current end of the file and starts watching it
+     */
+    public MembershipFileWatcher(Path path, MembershipRepository.ChangeListener listener) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.listener = listener;
+
+        markPosition(lastLineEnd(Files.size(this.path)));
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.path.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watchThread = new Thread(this::runWatcher, "membership-file-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        logger.info("Watching membership file {} for changes", this.path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watchThread.interrupt();
+    }
+
+    private void runWatcher() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || (context instanceof Path && path.getFileName().equals(context))) {
+                        relevant = true;
+                    }
+                }
+                key.reset();
+
+                if (relevant) {
+                    try {
+                        checkForChanges();
+                    } catch (IOException e) {
+                        logger.error("Error reading changes to membership file: {}", e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Membership file watcher stopped");
+        }
+    }
+
+    private synchronized void checkForChanges() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+
+        boolean rewritten = !Objects.equals(fileKey, attributes.fileKey())
+                || size < position
+                || !Arrays.equals(fingerprint, readBytes(position - fingerprint.length, fingerprint.length));
+
+        if (rewritten) {
+            logger.info("Membership file {} was rewritten, rebuilding membership data", path);
+            // Rows appended while the rebuild runs lie past this mark and are read as a tail later
+            markPosition(lastLineEnd(size));
+            listener.reloaded();
+        } else if (size > position) {
+            readTail(size);
+        }
+    }
+
+    /**
+     * Reads the complete lines appended since the last check and reports each member row
+     */
+    private void readTail(long size) throws IOException {
+        long end = lastLineEnd(size);
+        if (end <= position) {
+            // Only a partial line so far, wait for the rest of it
+            return;
+        }
+
+        byte[] tail = readBytes(position, (int) (end - position));
+        String[] lines = new String(tail, StandardCharsets.UTF_8).split("\n");
+        int added = 0;
+        for (String line : lines) {
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                continue;
+            }
+            int number = MembershipIndex.parse(line.substring(0, comma).trim());
+            if (number >= 0) {
+                listener.memberAdded(number, line.substring(comma + 1).trim());
+                added++;
+            }
+        }
+
+        markPosition(end);
+        logger.debug("Read {} appended membership rows from {}", added, path);
+    }
+
+    private void markPosition(long newPosition) throws IOException {
+        position = newPosition;
+        fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        int length = (int) Math.min(FINGERPRINT_LENGTH, newPosition);
+        fingerprint = readBytes(newPosition - length, length);
+    }
+
+    /**
+     * @return The offset just after the last newline before size, or 0 if there is none
+     */
+    private long lastLineEnd(long size) throws IOException {
+        long offset = size;
+        int chunk = 4096;
+        while (offset > 0) {
+            int length = (int) Math.min(chunk, offset);
+            byte[] bytes = readBytes(offset - length, length);
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                if (bytes[i] == '\n') {
+                    return offset - length + i + 1;
+                }
+            }
+            offset -= length;
+        }
+        return 0;
+    }
+
+    private byte[] readBytes(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        return buffer.position() == length ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
@@ -0,0 +1,284 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Single-writer, group-commit append log for the membership file.
+ *
+ * Callers hand lines to {@link #append(String)} and get a future back. One writer
+ * thread keeps the file open, drains everything queued since its last pass into a
+ * single write and, depending on the durability mode, a single fsync, and then
+ * completes the futures of that batch. Appends from parallel jobs therefore never
+ * interleave and share the cost of each write and sync.
+ */
+public class MembershipJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MembershipJournal.class);
+
+    // How long the writer waits for new records when nothing is pending a sync
+    private static final long IDLE_POLL_MILLIS = 200;
+
+    // Queued by close() after the last record, tells the writer to stop
+    private static final PendingRecord POISON = new PendingRecord(new byte[0]);
+
+    /**
+     * When appended records are forced to disk before their futures complete
+     */
+    public enum Durability {
+        // fsync after every batch, futures complete once the batch is on disk
+        BATCH,
+        // fsync at most once per sync interval, futures complete after the covering fsync
+        INTERVAL,
+        // no fsync, futures complete once the batch is written to the OS
+        NONE;
+
+        public static Durability fromString(String value) {
+            return Durability.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final Path path;
+    private final Durability durability;
+    private final long syncIntervalMillis;
+    private final int maxBatchSize;
+
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final List<PendingRecord> awaitingSync = new ArrayList<>();
+    private final Thread writerThread;
+
+    // Guards the channel so it can be swapped when the file is replaced on disk
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+
+    // Appends hold the read lock so close() cannot slip in between their check and enqueue
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private boolean running = true;
+    private long lastSyncMillis = System.currentTimeMillis();
+
+    /**
+     * Opens the journal file for appending and starts the writer thread
+     * @param path               The membership file to append to
+     * @param durability         When records are forced to disk
+     * @param syncIntervalMillis Maximum time between syncs in INTERVAL mode
+     * @param maxBatchSize       Maximum number of records written together
+     */
+    public MembershipJournal(Path path, Durability durability, long syncIntervalMillis, int maxBatchSize)
+            throws IOException {
+        this.path = path;
+        this.durability = durability;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.channel = openChannel(path);
+
+        writerThread = new Thread(this::runWriter, "membership-journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        logger.info("Membership journal opened at {} with durability {}", path, durability);
+    }
+
+    /**
+     * Queues a line for appending
+     * @param line The line to append, including its trailing newline
+     * @return A future that completes once the line is durable according to the durability mode
+     */
+    public CompletableFuture<Void> append(String line) {
+        PendingRecord record = new PendingRecord(line.getBytes(StandardCharsets.UTF_8));
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                record.future.completeExceptionally(new IOException("Membership journal is closed: " + path));
+                return record.future;
+            }
+            queue.add(record);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        return record.future;
+    }
+
+    /**
+     * Reopens the file, for when it has been replaced by a new file at the same path.
+     * Records written after this call go to the new file.
+     */
+    public void reopen() throws IOException {
+        synchronized (channelLock) {
+            FileChannel previous = channel;
+            channel = openChannel(path);
+            previous.close();
+        }
+        logger.info("Membership journal reopened at {}", path);
+    }
+
+    /**
+     * Stops accepting records, flushes everything already queued and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            // The writer is woken by the pill, not interrupted: an interrupt would close the channel
+            queue.add(POISON);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Only left over if the writer did not finish in time
+        List<PendingRecord> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        leftover.remove(POISON);
+        if (!leftover.isEmpty()) {
+            logger.warn("Membership journal closed with {} records not written", leftover.size());
+            failAll(leftover, new IOException("Membership journal is closed: " + path));
+        }
+        synchronized (channelLock) {
+            channel.close();
+        }
+        logger.info("Membership journal closed at {}", path);
+    }
+
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                PendingRecord first = queue.poll(nextPollMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    // Nothing is queued after the pill, so the rest of the batch is the last to write
+                    stopping = batch.remove(POISON);
+                    if (!batch.isEmpty()) {
+                        writeBatch(batch);
+                    }
+                    batch.clear();
+                }
+                if (durability == Durability.INTERVAL && !awaitingSync.isEmpty()
+                        && System.currentTimeMillis() - lastSyncMillis >= syncIntervalMillis) {
+                    syncAwaiting();
+                }
+            } catch (InterruptedException e) {
+                // Nothing interrupts the writer on purpose; it keeps going until it sees the pill
+                logger.warn("Membership journal writer interrupted, continuing");
+            }
+        }
+        if (!awaitingSync.isEmpty()) {
+            syncAwaiting();
+        }
+    }
+
+    private long nextPollMillis() {
+        if (durability == Durability.INTERVAL && !awaitingSync.isEmpty()) {
+            return Math.max(0, syncIntervalMillis - (System.currentTimeMillis() - lastSyncMillis));
+        }
+        return IDLE_POLL_MILLIS;
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        int totalBytes = 0;
+        for (PendingRecord record : batch) {
+            totalBytes += record.bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(totalBytes);
+        for (PendingRecord record : batch) {
+            buffer.put(record.bytes);
+        }
+        buffer.flip();
+
+        try {
+            synchronized (channelLock) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (durability == Durability.BATCH) {
+                    channel.force(false);
+                }
+            }
+
+            switch (durability) {
+                case BATCH:
+                    lastSyncMillis = System.currentTimeMillis();
+                    completeAll(batch);
+                    break;
+                case INTERVAL:
+                    awaitingSync.addAll(batch);
+                    break;
+                case NONE:
+                default:
+                    completeAll(batch);
+                    break;
+            }
+            logger.debug("Membership journal wrote {} records ({} bytes)", batch.size(), totalBytes);
+        } catch (IOException e) {
+            logger.error("Error writing membership journal batch: {}", e.getMessage(), e);
+            failAll(batch, e);
+        }
+    }
+
+    private void syncAwaiting() {
+        try {
+            synchronized (channelLock) {
+                channel.force(false);
+            }
+            lastSyncMillis = System.currentTimeMillis();
+            completeAll(awaitingSync);
+        } catch (IOException e) {
+            logger.error("Error syncing membership journal: {}", e.getMessage(), e);
+            failAll(awaitingSync, e);
+        }
+        awaitingSync.clear();
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void completeAll(List<PendingRecord> records) {
+        for (PendingRecord record : records) {
+            record.future.complete(null);
+        }
+    }
+
+    private static void failAll(List<PendingRecord> records, IOException cause) {
+        for (PendingRecord record : records) {
+            record.future.completeExceptionally(cause);
+        }
+    }
+
+    private static final class PendingRecord {
+        private final byte[] bytes;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingRecord(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage backend for the membership register.
+ *
+ * MembershipCheckService keeps the business rules (number format, allocation,
+ * in-memory index and cache) and talks to the register only through this
+ * interface, so the backend can be switched with membership.storage.type
+ * without touching any worker code. Membership numbers are passed as ints in
+ * the range 0-999999.
+ */
+public interface MembershipRepository extends Closeable {
+
+    /**
+     * @return The configuration name of this backend, e.g. csv, mmap or mvstore
+     */
+    String getType();
+
+    /**
+     * Calls the visitor once for every member in the register
+     */
+    void forEach(MemberVisitor visitor) throws IOException;
+
+    /**
+     * Looks up the customer name stored for a membership number
+     * @return The customer name, or null if the number is not registered
+     */
+    String findName(int number) throws IOException;
+
+    /**
+     * Stores a new member
+     * @return A future that completes once the member is durably stored
+     */
+    CompletableFuture<Void> add(int number, String customerName);
+
+    /**
+     * Stores a batch of new members with as few writes as the backend allows
+     * @param members Membership numbers mapped to customer names, in write order
+     * @return A future that completes once the whole batch is durably stored
+     */
+    default CompletableFuture<Void> addAll(Map<Integer, String> members) {
+        CompletableFuture<?>[] stored = members.entrySet().stream()
+                .map(entry -> add(entry.getKey(), entry.getValue()))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(stored);
+    }
+
+    /**
+     * @return true if the register holds no members
+     */
+    boolean isEmpty() throws IOException;
+
+    /**
+     * Seeds the register from a CSV export with a MembershipNumber,CustomerName header.
+     * Backends override this when they can load rows faster than one add per row.
+     * @return The number of members imported
+     */
+    default int importCsv(Path csvPath) throws IOException {
+        int[] imported = {0};
+        CsvMembershipRepository.read(csvPath, (number, customerName) -> {
+            add(number, customerName).join();
+            imported[0]++;
+        });
+        return imported[0];
+    }
+
+    /**
+     * Starts reporting changes made to the register outside this application.
+     * Backends that are only ever written through this interface ignore it.
+     */
+    default void watch(ChangeListener listener) throws IOException {
+    }
+
+    /**
+     * Callback for iterating over registered members
+     */
+    interface MemberVisitor {
+        void visit(int number, String customerName);
+    }
+
+    /**
+     * Receives out-of-band changes to the register
+     */
+    interface ChangeListener {
+        // A member row was appended
+        void memberAdded(int number, String customerName);
+
+        // The register was rewritten and has to be re-read in full
+        void reloaded();
+    }
+}
@@ -0,0 +1,118 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends Stripe calls over pooled keep-alive HTTP/1.1 connections, one call per
+ * connection at a time. Blocking calls use the pooled client, asynchronous ones
+ * the non-blocking client, both built in StripeHttpClientConfig.
+ */
+public class ApacheStripeTransport implements StripeTransport {
+
+    private static final ContentType FORM = ContentType.create("application/x-www-form-urlencoded", StandardCharsets.UTF_8);
+
+    private final CloseableHttpClient httpClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpAsyncClient asyncHttpClient;
+
+    public ApacheStripeTransport(CloseableHttpClient httpClient,
+                                 PoolingHttpClientConnectionManager connectionManager,
+                                 CloseableHttpAsyncClient asyncHttpClient) {
+        this.httpClient = httpClient;
+        this.connectionManager = connectionManager;
+        this.asyncHttpClient = asyncHttpClient;
+    }
+
+    @Override
+    public StripeResponse send(StripeRequest request) throws IOException {
+        // Closing the response returns its connection to the pool
+        try (CloseableHttpResponse response = httpClient.execute(toHttpRequest(request))) {
+            return toStripeResponse(response);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StripeResponse> sendAsync(StripeRequest request) {
+        CompletableFuture<StripeResponse> result = new CompletableFuture<>();
+        asyncHttpClient.execute(toHttpRequest(request), new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    // The async client buffers the whole entity, so reading it does not block
+                    result.complete(toStripeResponse(response));
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return Leased, available and pending connection counts of the blocking client's pool
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("type", "apache");
+        result.put("leased", stats.getLeased());
+        result.put("available", stats.getAvailable());
+        result.put("pending", stats.getPending());
+        result.put("max", stats.getMax());
+        return result;
+    }
+
+    private static HttpUriRequest toHttpRequest(StripeRequest request) {
+        HttpUriRequest httpRequest;
+        if (request.getFormBody() != null) {
+            HttpPost post = new HttpPost(request.getUri());
+            // Wraps the pre-encoded bytes, nothing is copied or encoded again
+            post.setEntity(new ByteArrayEntity(request.getFormBody(), FORM));
+            httpRequest = post;
+        } else {
+            httpRequest = new HttpGet(request.getUri());
+        }
+        httpRequest.setHeader("Authorization", request.getAuthorization());
+        if (request.getIdempotencyKey() != null) {
+            httpRequest.setHeader("Idempotency-Key", request.getIdempotencyKey());
+        }
+        return httpRequest;
+    }
+
+    private static StripeResponse toStripeResponse(HttpResponse response) throws IOException {
+        Header retryAfter = response.getFirstHeader("Retry-After");
+        return new StripeResponse(response.getStatusLine().getStatusCode(),
+                EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8),
+                retryAfter == null ? null : retryAfter.getValue());
+    }
+}
@@ -0,0 +1,124 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends Stripe calls with java.net.http.HttpClient over HTTP/2.
+ *
+ * Each client keeps one connection per host and multiplexes every call on it as a
+ * separate stream, so a handful of clients carry all Stripe traffic over a handful
+ * of long-lived connections instead of one pooled connection per in-flight call.
+ * Calls are spread over the clients round-robin. Servers that do not negotiate
+ * HTTP/2 are served over HTTP/1.1, the stats show which protocol responses used.
+ */
+public class JdkStripeTransport implements StripeTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdkStripeTransport.class);
+
+    private final HttpClient[] clients;
+    private final Duration readTimeout;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder http2Responses = new LongAdder();
+    private final LongAdder http1Responses = new LongAdder();
+
+    /**
+     * @param connections          Number of clients, and so of HTTP/2 connections to Stripe
+     * @param connectTimeoutMillis Timeout for opening a connection
+     * @param readTimeoutMillis    Timeout for a whole call, from sending to the end of the response
+     */
+    public JdkStripeTransport(int connections, long connectTimeoutMillis, long readTimeoutMillis) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Stripe HTTP/2 connections must be at least 1: " + connections);
+        }
+        this.clients = new HttpClient[connections];
+        for (int i = 0; i < connections; i++) {
+            clients[i] = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                    .build();
+        }
+        this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+        logger.info("Creating HTTP/2 Stripe HTTP client: {} connections", connections);
+    }
+
+    @Override
+    public StripeResponse send(StripeRequest request) throws IOException {
+        inFlight.incrementAndGet();
+        try {
+            return toStripeResponse(nextClient().send(toHttpRequest(request), HttpResponse.BodyHandlers.ofString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted calling Stripe " + request.getUri().getPath());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public CompletableFuture<StripeResponse> sendAsync(StripeRequest request) {
+        inFlight.incrementAndGet();
+        return nextClient().sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> inFlight.decrementAndGet())
+                .thenApply(this::toStripeResponse);
+    }
+
+    /**
+     * @return Connection count, calls in flight and responses received per protocol
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "jdk");
+        stats.put("connections", clients.length);
+        stats.put("inFlight", inFlight.get());
+        stats.put("http2Responses", http2Responses.sum());
+        stats.put("http1Responses", http1Responses.sum());
+        return stats;
+    }
+
+    private HttpClient nextClient() {
+        return clients[Math.floorMod(next.getAndIncrement(), clients.length)];
+    }
+
+    private HttpRequest toHttpRequest(StripeRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+                .timeout(readTimeout)
+                .header("Authorization", request.getAuthorization());
+        if (request.getIdempotencyKey() != null) {
+            builder.header("Idempotency-Key", request.getIdempotencyKey());
+        }
+        if (request.getFormBody() != null) {
+            // Sends the pre-encoded bytes as they are
+            builder.header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(request.getFormBody()));
+        } else {
+            builder.GET();
+        }
+        return builder.build();
+    }
+
+    private StripeResponse toStripeResponse(HttpResponse<String> response) {
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            http2Responses.increment();
+        } else {
+            http1Responses.increment();
+        }
+        return new StripeResponse(response.statusCode(), response.body(),
+                response.headers().firstValue("Retry-After").orElse(null));
+    }
+}
@@ -0,0 +1,157 @@
+package io.camunda.getstarted.repairShop.service;
+
+import io.camunda.zeebe.client.api.response.ActivatedJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which result variables a job completion sends to the broker.
+ *
+ * Workers copy customer, vehicle, price and membership variables into their
+ * results, often under several alias names, although those variables are already
+ * in scope. In delta mode a result variable is left out when the job was activated
+ * with the same value, so a completion only writes what is new or changed. Numbers
+ * compare by value, so 120 and 120.0 are the same. Variables the worker did not
+ * fetch are always sent.
+ *
+ * Legacy alias names that a process still expects to be written on completion can
+ * be listed per job type under worker.completion.legacy-aliases; they are sent
+ * even when unchanged. Full mode sends every result variable, as before.
+ */
+@Component
+public class JobCompletionVariables {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobCompletionVariables.class);
+
+    private static final String LEGACY_ALIASES_PREFIX = "worker.completion.legacy-aliases.";
+
+    public enum Mode { FULL, DELTA }
+
+    private final Mode mode;
+    private final Environment environment;
+
+    // Job type -> names sent even when unchanged, resolved on first use
+    private final Map<String, Set<String>> legacyAliases = new ConcurrentHashMap<>();
+
+    /**
+     * @param mode full sends every result variable, delta only new and changed ones
+     */
+    public JobCompletionVariables(@Value("${worker.completion.mode:delta}") String mode, Environment environment) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.environment = environment;
+        logger.info("Job completions send {} variables", this.mode == Mode.DELTA ? "only new and changed" : "all result");
+    }
+
+    /**
+     * @param job       The job being completed
+     * @param fetched   The variables the job was activated with
+     * @param variables The worker's result variables
+     * @return The variables to complete the job with
+     */
+    public Map<String, Object> forCompletion(ActivatedJob job, Map<String, Object> fetched, Map<String, Object> variables) {
+        if (mode == Mode.FULL) {
+            return variables;
+        }
+        Set<String> keep = legacyAliases.computeIfAbsent(job.getType(), this::readLegacyAliases);
+        Map<String, Object> delta = new HashMap<>(variables);
+        Iterator<Map.Entry<String, Object>> entries = delta.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Object> entry = entries.next();
+            if (!keep.contains(entry.getKey()) && fetched.containsKey(entry.getKey())
+                    && sameValue(fetched.get(entry.getKey()), entry.getValue())) {
+                entries.remove();
+            }
+        }
+        logger.debug("Completing {} job {} with {} of {} result variables",
+                job.getType(), job.getKey(), delta.size(), variables.size());
+        return delta;
+    }
+
+    private Set<String> readLegacyAliases(String jobType) {
+        String[] names = environment.getProperty(LEGACY_ALIASES_PREFIX + jobType, String[].class);
+        if (names == null || names.length == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> aliases = new HashSet<>();
+        for (String name : names) {
+            if (!name.trim().isEmpty()) {
+                aliases.add(name.trim());
+            }
+        }
+        logger.info("Job type {} always completes with legacy variables {}", jobType, aliases);
+        return aliases;
+    }
+
+    /**
+     * @return true if both values are equal as JSON, comparing numbers by value
+     */
+    static boolean sameValue(Object current, Object result) {
+        if (current instanceof Number && result instanceof Number) {
+            BigDecimal currentNumber = toBigDecimal((Number) current);
+            BigDecimal resultNumber = toBigDecimal((Number) result);
+            return currentNumber != null && resultNumber != null
+                    ? currentNumber.compareTo(resultNumber) == 0
+                    : current.equals(result);
+        }
+        if (current instanceof Map && result instanceof Map) {
+            Map<?, ?> currentMap = (Map<?, ?>) current;
+            Map<?, ?> resultMap = (Map<?, ?>) result;
+            if (currentMap.size() != resultMap.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : resultMap.entrySet()) {
+                if (!currentMap.containsKey(entry.getKey()) || !sameValue(currentMap.get(entry.getKey()), entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (current instanceof List && result instanceof List) {
+            List<?> currentList = (List<?>) current;
+            List<?> resultList = (List<?>) result;
+            if (currentList.size() != resultList.size()) {
+                return false;
+            }
+            for (int i = 0; i < resultList.size(); i++) {
+                if (!sameValue(currentList.get(i), resultList.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (result instanceof Object[]) {
+            return sameValue(current, Arrays.asList((Object[]) result));
+        }
+        return Objects.equals(current, result);
+    }
+
+    /**
+     * @return The exact value of a number, or null for NaN and infinity
+     */
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return Double.isNaN(value) || Double.isInfinite(value) ? null : BigDecimal.valueOf(value);
+        }
+        return new BigDecimal(number.toString());
+    }
+}
@@ -0,0 +1,176 @@
+package io.camunda.getstarted.repairShop.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Prefix index from customer name words to membership numbers.
+ *
+ * Names are split into lower-cased words with punctuation dropped, and every word
+ * keeps a posting list of the membership numbers whose name contains it. Words are
+ * held in a sorted map, so a query word matches all indexed words it is a prefix of
+ * through one range scan. A query matches a member when every query word matches,
+ * in any order, which makes "smith  JOHN" find "John Smith".
+ */
+public class MemberNameIndex {
+
+    private final ConcurrentSkipListMap<String, Postings> words = new ConcurrentSkipListMap<>();
+
+    /**
+     * Indexes a member's name
+     * @param number       The membership number as an int in the range 0-999999
+     * @param customerName The customer name as stored in the register
+     */
+    public void add(int number, String customerName) {
+        for (String word : normalize(customerName)) {
+            words.computeIfAbsent(word, w -> new Postings()).add(number);
+        }
+    }
+
+    /**
+     * Finds members whose name matches every word of the query
+     * @param query      Name or partial name, e.g. "jo smi"
+     * @param maxResults Maximum number of membership numbers returned
+     * @return Matching membership numbers in ascending order
+     */
+    public List<Integer> find(String query, int maxResults) {
+        List<String> queryWords = normalize(query);
+        List<Integer> results = new ArrayList<>();
+        if (queryWords.isEmpty() || maxResults <= 0) {
+            return results;
+        }
+
+        // Collect the posting lists each query word expands to, most selective word first
+        List<List<Postings>> expansions = new ArrayList<>(queryWords.size());
+        for (String word : queryWords) {
+            List<Postings> matching = new ArrayList<>(prefixRange(word).values());
+            if (matching.isEmpty()) {
+                return results;
+            }
+            expansions.add(matching);
+        }
+        expansions.sort(Comparator.comparingLong(MemberNameIndex::totalSize));
+
+        // Candidates are kept as sorted arrays sized by the matches, not by the number space
+        int[] candidates = sortedUnion(expansions.get(0));
+        for (int i = 1; i < expansions.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, sortedUnion(expansions.get(i)));
+        }
+
+        for (int i = 0; i < candidates.length && results.size() < maxResults; i++) {
+            results.add(candidates[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Splits a name into lower-case words, ignoring extra whitespace and punctuation
+     */
+    static List<String> normalize(String name) {
+        List<String> result = new ArrayList<>();
+        if (name == null) {
+            return result;
+        }
+        for (String part : name.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            StringBuilder word = new StringBuilder(part.length());
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    word.append(c);
+                }
+            }
+            if (word.length() > 0) {
+                result.add(word.toString());
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Postings> prefixRange(String prefix) {
+        return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static long totalSize(Collection<Postings> postings) {
+        long total = 0;
+        for (Postings p : postings) {
+            total += p.size();
+        }
+        return total;
+    }
+
+    /**
+     * @return The distinct numbers of all posting lists, in ascending order
+     */
+    private static int[] sortedUnion(Collection<Postings> postings) {
+        int[] numbers = new int[(int) totalSize(postings)];
+        int count = 0;
+        for (Postings p : postings) {
+            count = p.copyTo(numbers, count);
+        }
+        Arrays.sort(numbers, 0, count);
+
+        // A name can hold several words matching the same prefix, e.g. "jo" in "John Johnson"
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || numbers[distinct - 1] != numbers[i]) {
+                numbers[distinct++] = numbers[i];
+            }
+        }
+        return distinct == numbers.length ? numbers : Arrays.copyOf(numbers, distinct);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Growable list of membership numbers for one word
+     */
+    private static final class Postings {
+
+        private int[] numbers = new int[2];
+        private int size;
+
+        synchronized void add(int number) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * Copies the numbers into target from offset on, as many as fit
+         * @return The offset after the last copied number
+         */
+        synchronized int copyTo(int[] target, int offset) {
+            int length = Math.min(size, target.length - offset);
+            System.arraycopy(numbers, 0, target, offset, length);
+            return offset + length;
+        }
+    }
+}
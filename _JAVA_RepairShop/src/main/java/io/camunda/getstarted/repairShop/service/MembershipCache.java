@@ -0,0 +1,155 @@
+package io.camunda.getstarted.repairShop.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, thread-safe membership number to customer name cache.
+ *
+ * Entries are spread over a fixed number of segments, each an access-ordered
+ * LinkedHashMap guarded by its own lock, so job workers touching different
+ * numbers rarely contend. Every segment evicts its least recently used entry
+ * once it reaches its share of the configured maximum size.
+ */
+public class MembershipCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize Maximum number of entries held across all segments
+     */
+    public MembershipCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Membership cache size must be positive: " + maxSize);
+        }
+        int segmentCount = Math.min(SEGMENT_COUNT, maxSize);
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Looks up the customer name cached for a membership number
+     * @return The cached name, or null on a cache miss
+     */
+    public String get(String membershipNumber) {
+        Segment segment = segmentFor(membershipNumber);
+        String name;
+        segment.lock.lock();
+        try {
+            name = segment.entries.get(membershipNumber);
+        } finally {
+            segment.lock.unlock();
+        }
+
+        if (name != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return name;
+    }
+
+    /**
+     * Caches a customer name, evicting the least recently used entry of the segment if full
+     */
+    public void put(String membershipNumber, String customerName) {
+        Segment segment = segmentFor(membershipNumber);
+        segment.lock.lock();
+        try {
+            segment.entries.put(membershipNumber, customerName);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a membership number from the cache
+     */
+    public void invalidate(String membershipNumber) {
+        Segment segment = segmentFor(membershipNumber);
+        segment.lock.lock();
+        try {
+            segment.entries.remove(membershipNumber);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry from the cache. Counters are kept.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return The number of entries currently cached
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Snapshot of the cache size and its hit, miss and eviction counters
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("size", (long) size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private Segment segmentFor(String membershipNumber) {
+        int hash = membershipNumber.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, String> entries;
+
+        private Segment(int maxEntries) {
+            this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
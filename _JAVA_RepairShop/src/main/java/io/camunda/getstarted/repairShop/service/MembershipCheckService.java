@@ -1,200 +1,504 @@
 package io.camunda.getstarted.repairShop.service;
 
+import io.camunda.getstarted.repairShop.repository.CsvMembershipRepository;
+import io.camunda.getstarted.repairShop.repository.MembershipRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Service
 public class MembershipCheckService {
 
     private static final Logger logger = LoggerFactory.getLogger(MembershipCheckService.class);
 
-    // File path for the membership CSV file - configurable via application.properties or .env
-    @Value("${membership.data.file-path:src/main/resources/data/members.csv}")
-    private String membershipFilePath;
+    // Storage backend for the member register, selected by membership.storage.type
+    private final MembershipRepository membershipRepository;
 
-    // Map to cache existing membership numbers for faster lookups (optional)
-    private Map<String, String> membershipCache;
+    // Bounded, thread-safe number -> name cache shared by all job worker threads
+    private final MembershipCache membershipCache;
+
+    // Bitset over the 6-digit number space, answers validity checks without file I/O.
+    // Replaced as a whole when the register is rewritten out of band.
+    private volatile MembershipIndex membershipIndex = new MembershipIndex();
+
+    // Name word -> membership numbers, for finding members who forgot their number.
+    // Replaced together with the membership index on a rebuild.
+    private volatile MemberNameIndex nameIndex = new MemberNameIndex();
+
+    // Single adds hold the read lock, swapping in a new index holds the write lock,
+    // so no add can land in an index that is being copied or has been replaced
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    // Numbers of the import in progress. Their rows come back through the watcher
+    // before the import publishes them, and must not reach the live index early.
+    private volatile MembershipIndex importing;
+
+    // Runs one bulk import at a time
+    private final Object importLock = new Object();
+
+    // Free-space bitmap that hands out new membership numbers
+    private final MembershipNumberAllocator numberAllocator;
+
+    // Whether out-of-band edits to the register are picked up while running
+    @Value("${membership.watch.enabled:true}")
+    private boolean watchEnabled;
+
+    // Number of rows written to the repository per batch during a bulk import
+    @Value("${membership.import.batch-size:10000}")
+    private int importBatchSize;
+
+    /**
+     * Initializes the membership service
+     * @param membershipRepository The configured member register backend
+     * @param cacheMaxSize  Maximum number of customer names kept in the membership cache
+     * @param nodeId        Index of this worker node, selects its block of membership numbers
+     * @param nodeCount     Number of worker nodes sharing the membership file
+     */
+    public MembershipCheckService(MembershipRepository membershipRepository,
+                                  @Value("${membership.cache.max-size:10000}") int cacheMaxSize,
+                                  @Value("${membership.allocator.node-id:0}") int nodeId,
+                                  @Value("${membership.allocator.node-count:1}") int nodeCount) {
+        this.membershipRepository = membershipRepository;
+        membershipCache = new MembershipCache(cacheMaxSize);
+        numberAllocator = new MembershipNumberAllocator(nodeId, nodeCount);
+    }
+
+    /**
+     * Loads every membership number from the repository into the in-memory index.
+     * Runs once at startup; afterwards the index is kept current by addNewMember
+     * and, if enabled, by the repository's change feed.
+     */
+    @PostConstruct
+    public void loadMembershipIndex() {
+        try {
+            // Start watching first so rows appended during the load are not missed
+            if (watchEnabled) {
+                membershipRepository.watch(new MembershipRepository.ChangeListener() {
+                    @Override
+                    public void memberAdded(int number, String customerName) {
+                        onMemberAdded(number, customerName);
+                    }
+
+                    @Override
+                    public void reloaded() {
+                        rebuildMembershipIndex();
+                    }
+                });
+            }
+
+            membershipRepository.forEach((number, customerName) -> {
+                indexMember(number, customerName);
+                numberAllocator.markAllocated(number);
+            });
+
+            logger.info("Loaded {} membership numbers into the index from the {} repository",
+                    membershipIndex.size(), membershipRepository.getType());
+        } catch (IOException e) {
+            logger.error("Error loading membership index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a member row appended to the register outside this service
+     */
+    private void onMemberAdded(int number, String customerName) {
+        numberAllocator.markAllocated(number);
+        // Rows written by the running import are published by the import itself
+        MembershipIndex pending = importing;
+        if (pending != null && pending.contains(number)) {
+            return;
+        }
+        // Our own appends come back through the watcher, indexMember only indexes names once
+        indexMember(number, customerName);
+        membershipCache.put(MembershipIndex.format(number), customerName);
+    }
+
+    /**
+     * Adds one member to the live membership and name indexes
+     * @return true if the number was not indexed before
+     */
+    private boolean indexMember(int number, String customerName) {
+        indexLock.readLock().lock();
+        try {
+            if (!membershipIndex.add(number)) {
+                return false;
+            }
+            nameIndex.add(number, customerName);
+            return true;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
 
     /**
-     * Initializes the membership service and ensures the CSV file exists
+     * Re-reads the whole register into a fresh index and swaps it in atomically,
+     * so removed members disappear without lookups ever seeing a half-built index.
+     * Numbers of removed members stay allocated and are not issued again.
      */
-    public MembershipCheckService() {
-        membershipCache = new HashMap<>();
+    private void rebuildMembershipIndex() {
+        try {
+            MembershipIndex rebuiltIndex = new MembershipIndex();
+            MemberNameIndex rebuiltNameIndex = new MemberNameIndex();
+            membershipRepository.forEach((number, customerName) -> {
+                if (rebuiltIndex.add(number)) {
+                    rebuiltNameIndex.add(number, customerName);
+                }
+                numberAllocator.markAllocated(number);
+            });
+
+            indexLock.writeLock().lock();
+            try {
+                membershipIndex = rebuiltIndex;
+                nameIndex = rebuiltNameIndex;
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            membershipCache.invalidateAll();
+
+            logger.info("Rebuilt membership index with {} membership numbers", rebuiltIndex.size());
+        } catch (IOException e) {
+            logger.error("Error rebuilding membership index: {}", e.getMessage(), e);
+        }
     }
 
     /**
-     * Validates if a membership number exists in the CSV file
+     * Validates if a membership number exists in the membership index
      * @param membershipNumber The 6-digit membership number to validate
      * @return true if the membership number is valid, false otherwise
      */
     public boolean validateMembershipNumber(String membershipNumber) {
         // Validate format first (should be 6 digits)
-        if (membershipNumber == null || !membershipNumber.matches("\\d{6}")) {
+        int number = MembershipIndex.parse(membershipNumber);
+        if (number < 0) {
             logger.warn("Invalid membership number format: {}", membershipNumber);
             return false;
         }
 
-        // Check cache first for performance
-        if (membershipCache.containsKey(membershipNumber)) {
-            logger.info("Membership number found in cache: {}", membershipNumber);
+        // The index holds every known number, so a miss is a definitive answer
+        if (membershipIndex.contains(number)) {
+            logger.info("Membership number validated: {}", membershipNumber);
             return true;
         }
 
-        // Otherwise, read from CSV file
-        try {
-            // Ensure file exists
-            File membershipFile = new File(membershipFilePath);
-            if (!membershipFile.exists()) {
-                logger.info("Membership file does not exist, creating new file at: {}", membershipFilePath);
-                createMembershipFile();
-                return false;
-            }
+        logger.warn("Membership number not found: {}", membershipNumber);
+        return false;
+    }
 
-            // Read and check CSV file
-            try (BufferedReader reader = new BufferedReader(new FileReader(membershipFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 2 && parts[0].trim().equals(membershipNumber)) {
-                        // Add to cache for future lookups
-                        membershipCache.put(membershipNumber, parts[1].trim());
-                        logger.info("Membership number validated: {}", membershipNumber);
-                        return true;
-                    }
-                }
+    /**
+     * Validates a batch of membership numbers in one pass over the in-memory index
+     * @param membershipNumbers The membership numbers to validate, e.g. a fleet or partner import
+     * @return Each distinct membership number mapped to whether it is valid, in input order
+     */
+    public Map<String, Boolean> validateMembershipNumbers(Collection<String> membershipNumbers) {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        if (membershipNumbers == null) {
+            return results;
+        }
+
+        // Read the index once so the whole batch is checked against the same snapshot
+        MembershipIndex index = membershipIndex;
+        int validCount = 0;
+        for (String membershipNumber : membershipNumbers) {
+            if (membershipNumber == null || results.containsKey(membershipNumber)) {
+                continue;
             }
+            int number = MembershipIndex.parse(membershipNumber);
+            boolean valid = number >= 0 && index.contains(number);
+            results.put(membershipNumber, valid);
+            if (valid) {
+                validCount++;
+            }
+        }
 
-            logger.warn("Membership number not found: {}", membershipNumber);
-            return false;
+        logger.info("Validated batch of {} membership numbers: {} valid, {} invalid",
+                results.size(), validCount, results.size() - validCount);
+        return results;
+    }
+
+    /**
+     * Looks up the customer name registered for a membership number
+     * @param membershipNumber The 6-digit membership number
+     * @return The customer name, or null if the membership number is unknown
+     */
+    public String getMemberName(String membershipNumber) {
+        int number = MembershipIndex.parse(membershipNumber);
+        if (number < 0 || !membershipIndex.contains(number)) {
+            return null;
+        }
+
+        String cachedName = membershipCache.get(membershipNumber);
+        if (cachedName != null) {
+            return cachedName;
+        }
 
+        // Cache miss for a known number, read the name from the repository
+        try {
+            String name = membershipRepository.findName(number);
+            if (name != null) {
+                membershipCache.put(membershipNumber, name);
+            }
+            return name;
         } catch (IOException e) {
-            logger.error("Error validating membership number: {}", e.getMessage(), e);
-            return false;
+            logger.error("Error reading member name: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds membership numbers by customer name, ignoring case, word order and extra
+     * whitespace. Each query word matches name words it is a prefix of, so
+     * "jo smi" finds "John Smith".
+     * @param name       The name or partial name given by the customer
+     * @param maxResults Maximum number of candidates to return
+     * @return Candidate membership numbers in ascending order
+     */
+    public List<String> findMembershipNumbersByName(String name, int maxResults) {
+        List<String> candidates = new ArrayList<>();
+        MembershipIndex index = membershipIndex;
+        for (int number : nameIndex.find(name, maxResults)) {
+            // Names of a running import are indexed before its numbers are published
+            if (index.contains(number)) {
+                candidates.add(MembershipIndex.format(number));
+            }
         }
+        logger.info("Name search '{}' returned {} candidates", name, candidates.size());
+        return candidates;
+    }
+
+    /**
+     * @return Size, hit, miss and eviction counters of the membership cache
+     */
+    public Map<String, Long> getCacheStats() {
+        return membershipCache.getStats();
     }
 
     /**
      * Generates a new unique 6-digit membership number
-     * @return A new membership number that doesn't exist in the CSV file
+     * @return A new membership number that has not been issued before
      */
     public String generateMembershipNumber() {
-        Set<String> existingNumbers = getAllMembershipNumbers();
-        String newNumber;
-
-        // Generate a random 6-digit number that doesn't already exist
-        do {
-            newNumber = String.format("%06d", ThreadLocalRandom.current().nextInt(1, 1000000));
-        } while (existingNumbers.contains(newNumber));
+        String newNumber = MembershipIndex.format(numberAllocator.allocate());
 
         logger.info("Generated new membership number: {}", newNumber);
         return newNumber;
     }
 
     /**
-     * Adds a new member to the CSV file
+     * Adds a new member to the membership register
      * @param membershipNumber The 6-digit membership number
      * @param customerName The name of the customer
      * @return true if the member was added successfully, false otherwise
      */
     public boolean addNewMember(String membershipNumber, String customerName) {
+        return addNewMemberAsync(membershipNumber, customerName).join();
+    }
+
+    /**
+     * Adds a new member to the membership register
+     * @param membershipNumber The 6-digit membership number
+     * @param customerName The name of the customer
+     * @return A future that completes with true once the record is durable, or false if it could not be added
+     */
+    public CompletableFuture<Boolean> addNewMemberAsync(String membershipNumber, String customerName) {
         // Validate format
-        if (membershipNumber == null || !membershipNumber.matches("\\d{6}")) {
+        int number = MembershipIndex.parse(membershipNumber);
+        if (number < 0) {
             logger.warn("Invalid membership number format for new member: {}", membershipNumber);
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         // Ensure customer name doesn't contain commas to avoid CSV format issues
         String safeName = customerName.replace(",", "");
 
+        // Reserve the number straight away so concurrent allocations skip it
+        numberAllocator.markAllocated(number);
+
+        CompletableFuture<Void> stored;
         try {
-            // Ensure file and parent directories exist
-            File membershipFile = new File(membershipFilePath);
-            if (!membershipFile.exists()) {
-                createMembershipFile();
-            }
+            stored = membershipRepository.add(number, safeName);
+        } catch (RuntimeException e) {
+            stored = CompletableFuture.failedFuture(e);
+        }
 
-            // Append the new member to the CSV file
-            Path path = Paths.get(membershipFilePath);
-            String lineToAdd = membershipNumber + "," + safeName + "\n";
-            Files.write(path, lineToAdd.getBytes(StandardCharsets.UTF_8),
-                    StandardOpenOption.APPEND);
+        return stored.handle((ignored, error) -> {
+            if (error != null) {
+                logger.error("Error adding new member: {}", error.getMessage(), error);
+                // Hand the number back if it never made it into the register
+                if (!membershipIndex.contains(number)) {
+                    numberAllocator.release(number);
+                }
+                return false;
+            }
 
-            // Add to cache
+            // Add to index, name index and cache
+            indexMember(number, safeName);
             membershipCache.put(membershipNumber, safeName);
 
             logger.info("Added new member: {} with number: {}", safeName, membershipNumber);
             return true;
-
-        } catch (IOException e) {
-            logger.error("Error adding new member: {}", e.getMessage(), e);
-            return false;
-        }
+        });
     }
 
     /**
-     * Gets all existing membership numbers from the CSV file
-     * @return A set of all membership numbers
+     * Bulk-imports member rows in MembershipNumber,CustomerName form.
+     *
+     * Rows are streamed from the reader and written to the repository in batches of
+     * membership.import.batch-size, so memory use does not grow with the input.
+     * Duplicates are detected with a bitset over the number space rather than a set
+     * of seen rows. Imported numbers are published to the live index in one swap at
+     * the end, so lookups see either none or all of the committed batches. Imports
+     * run one at a time.
+     * @param csv Reader over the CSV rows, a header line is allowed
+     * @return Counts of imported, duplicate and invalid rows
      */
-    private Set<String> getAllMembershipNumbers() {
-        Set<String> numbers = new HashSet<>();
+    public Map<String, Integer> importMembers(Reader csv) throws IOException {
+        synchronized (importLock) {
+            return importMembersLocked(csv);
+        }
+    }
 
+    private Map<String, Integer> importMembersLocked(Reader csv) throws IOException {
+        MembershipIndex seen = new MembershipIndex();
+        MembershipIndex committed = new MembershipIndex();
+        Map<String, Integer> result = new LinkedHashMap<>();
+        int imported = 0;
+        int duplicates = 0;
+        int invalid = 0;
+
+        long startTime = System.currentTimeMillis();
+        importing = seen;
         try {
-            // Ensure file exists
-            File membershipFile = new File(membershipFilePath);
-            if (!membershipFile.exists()) {
-                logger.info("Membership file does not exist, creating new file at: {}", membershipFilePath);
-                createMembershipFile();
-                return numbers;
-            }
+            BufferedReader reader = new BufferedReader(csv, 1 << 16);
+            Map<Integer, String> batch = new LinkedHashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.equals(CsvMembershipRepository.HEADER)) {
+                    continue;
+                }
 
-            // Read all membership numbers
-            try (BufferedReader reader = new BufferedReader(new FileReader(membershipFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 2) {
-                        numbers.add(parts[0].trim());
-                        // Update cache
-                        membershipCache.put(parts[0].trim(), parts[1].trim());
-                    }
+                int comma = line.indexOf(',');
+                int number = comma < 0 ? -1 : MembershipIndex.parse(line.substring(0, comma).trim());
+                String customerName = comma < 0 ? "" : line.substring(comma + 1).replace(",", "").trim();
+                if (number < 0 || customerName.isEmpty()) {
+                    invalid++;
+                    continue;
                 }
-            }
 
-        } catch (IOException e) {
-            logger.error("Error reading membership numbers: {}", e.getMessage(), e);
+                // Already in the register, or repeated earlier in this import
+                if (membershipIndex.contains(number) || !seen.add(number)) {
+                    duplicates++;
+                    continue;
+                }
+
+                numberAllocator.markAllocated(number);
+                batch.put(number, customerName);
+                if (batch.size() >= importBatchSize) {
+                    imported += writeBatch(batch, committed);
+                    batch = new LinkedHashMap<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                imported += writeBatch(batch, committed);
+            }
+        } finally {
+            // Publish whatever was committed, even if a later batch failed
+            publishImported(committed);
+            importing = null;
         }
 
-        return numbers;
+        result.put("imported", imported);
+        result.put("duplicates", duplicates);
+        result.put("invalid", invalid);
+        logger.info("Imported {} members in {} ms ({} duplicates, {} invalid rows)",
+                imported, System.currentTimeMillis() - startTime, duplicates, invalid);
+        return result;
     }
 
     /**
-     * Creates the membership CSV file if it doesn't exist
+     * Writes one import batch and waits for it to be durable
+     * @return The number of members written
      */
-    private void createMembershipFile() throws IOException {
-        File file = new File(membershipFilePath);
+    private int writeBatch(Map<Integer, String> batch, MembershipIndex committed) throws IOException {
+        try {
+            membershipRepository.addAll(batch).join();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Error writing import batch: " + cause.getMessage(), cause);
+        }
+        MemberNameIndex names = nameIndex;
+        batch.forEach((number, customerName) -> {
+            committed.add(number);
+            names.add(number, customerName);
+        });
+        return batch.size();
+    }
 
-        // Create parent directories if needed
-        File parentDir = file.getParentFile();
-        if (!parentDir.exists()) {
-            parentDir.mkdirs();
+    /**
+     * Swaps in a copy of the live index that also holds the imported numbers.
+     * Single adds wait for the swap, so none are lost from the copy.
+     */
+    private void publishImported(MembershipIndex imported) {
+        if (imported.size() == 0) {
+            return;
+        }
+        indexLock.writeLock().lock();
+        try {
+            MembershipIndex mergedIndex = new MembershipIndex();
+            mergedIndex.addAll(membershipIndex);
+            mergedIndex.addAll(imported);
+            membershipIndex = mergedIndex;
+        } finally {
+            indexLock.writeLock().unlock();
         }
+    }
+
+    /**
+     * Streams every member in the index out as MembershipNumber,CustomerName rows.
+     * Rows are read from the repository one at a time and checked against the index,
+     * with a bitset to drop repeated numbers, so nothing is collected in memory.
+     * @param out Writer the CSV is written to, including the header
+     * @return The number of members exported
+     */
+    public int exportMembers(Writer out) throws IOException {
+        MembershipIndex index = membershipIndex;
+        MembershipIndex emitted = new MembershipIndex();
+        int[] exported = {0};
 
-        // Create file with header
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write("MembershipNumber,CustomerName\n");
+        out.write(CsvMembershipRepository.HEADER);
+        out.write('\n');
+        try {
+            membershipRepository.forEach((number, customerName) -> {
+                if (!index.contains(number) || !emitted.add(number)) {
+                    return;
+                }
+                try {
+                    out.write(MembershipIndex.format(number));
+                    out.write(',');
+                    out.write(customerName);
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        out.flush();
 
-        logger.info("Created new membership file at: {}", membershipFilePath);
+        logger.info("Exported {} members", exported[0]);
+        return exported[0];
     }
 }
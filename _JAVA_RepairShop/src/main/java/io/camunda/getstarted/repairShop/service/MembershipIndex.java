@@ -0,0 +1,192 @@
+package io.camunda.getstarted.repairShop.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dense in-memory index of every issued membership number.
+ *
+ * Membership numbers are fixed 6-digit values, so the whole number space fits in
+ * a 1,000,000-bit set (about 125 KB). Each number maps straight to one bit, which
+ * makes valid and invalid lookups O(1) without touching the CSV file. Bits are
+ * updated with compare-and-set so the index can be shared by concurrent job workers.
+ */
+public class MembershipIndex {
+
+    // Size of the 6-digit membership number space (000000-999999)
+    public static final int CAPACITY = 1_000_000;
+
+    private final AtomicLongArray words = new AtomicLongArray((CAPACITY + 63) >>> 6);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Checks whether a membership number is present in the index
+     * @param number The membership number as an int in the range 0-999999
+     * @return true if the number has been issued
+     */
+    public boolean contains(int number) {
+        if (number < 0 || number >= CAPACITY) {
+            return false;
+        }
+        return (words.get(number >>> 6) & (1L << number)) != 0;
+    }
+
+    /**
+     * Marks a membership number as issued
+     * @param number The membership number as an int in the range 0-999999
+     * @return true if the number was not present before
+     */
+    public boolean add(int number) {
+        checkRange(number);
+        int wordIndex = number >>> 6;
+        long mask = 1L << number;
+        while (true) {
+            long current = words.get(wordIndex);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(wordIndex, current, current | mask)) {
+                size.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a membership number from the index
+     * @param number The membership number as an int in the range 0-999999
+     * @return true if the number was present before
+     */
+    public boolean remove(int number) {
+        checkRange(number);
+        int wordIndex = number >>> 6;
+        long mask = 1L << number;
+        while (true) {
+            long current = words.get(wordIndex);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(wordIndex, current, current & ~mask)) {
+                size.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Adds every number present in another index, one 64-bit word at a time
+     */
+    public void addAll(MembershipIndex other) {
+        for (int wordIndex = 0; wordIndex < words.length(); wordIndex++) {
+            long incoming = other.words.get(wordIndex);
+            if (incoming == 0) {
+                continue;
+            }
+            while (true) {
+                long current = words.get(wordIndex);
+                long merged = current | incoming;
+                if (merged == current) {
+                    break;
+                }
+                if (words.compareAndSet(wordIndex, current, merged)) {
+                    size.addAndGet(Long.bitCount(merged) - Long.bitCount(current));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Atomically claims the first free number at or after start, wrapping around
+     * to lowerBound once upperBound is reached. Whole 64-bit words are skipped at
+     * a time, so claiming stays cheap even when the range is densely populated.
+     * @param start       Position to start searching from, inside the bounds
+     * @param lowerBound  Lowest number that may be claimed (inclusive)
+     * @param upperBound  Highest number that may be claimed (exclusive)
+     * @return The claimed number, or -1 if every number in the range is taken
+     */
+    public int claimFree(int start, int lowerBound, int upperBound) {
+        if (lowerBound < 0 || upperBound > CAPACITY || lowerBound >= upperBound
+                || start < lowerBound || start >= upperBound) {
+            throw new IllegalArgumentException("Invalid claim range: start=" + start
+                    + ", bounds=[" + lowerBound + ", " + upperBound + ")");
+        }
+
+        int from = start;
+        int to = upperBound;
+        for (int pass = 0; pass < 2; pass++) {
+            int number = from;
+            while (number < to) {
+                int wordIndex = number >>> 6;
+                int wordEnd = (wordIndex + 1) << 6;
+                long current = words.get(wordIndex);
+
+                // Free bits in this word at or after the current position and before the end of the range
+                long free = ~current & (-1L << number);
+                if (to < wordEnd) {
+                    free &= (1L << to) - 1;
+                }
+                if (free == 0) {
+                    number = wordEnd;
+                    continue;
+                }
+
+                int bit = Long.numberOfTrailingZeros(free);
+                if (words.compareAndSet(wordIndex, current, current | (1L << bit))) {
+                    size.incrementAndGet();
+                    return (wordIndex << 6) + bit;
+                }
+                // Lost a race with another thread on this word, re-read it and try again
+            }
+            from = lowerBound;
+            to = start;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of membership numbers currently in the index
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Parses a 6-digit membership number without going through a regex
+     * @param membershipNumber The membership number as entered or stored
+     * @return The number as an int, or -1 if it is not exactly 6 digits
+     */
+    public static int parse(String membershipNumber) {
+        if (membershipNumber == null || membershipNumber.length() != 6) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < 6; i++) {
+            char c = membershipNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Formats an index position back into the 6-digit membership number form
+     */
+    public static String format(int number) {
+        checkRange(number);
+        char[] digits = new char[6];
+        for (int i = 5; i >= 0; i--) {
+            digits[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static void checkRange(int number) {
+        if (number < 0 || number >= CAPACITY) {
+            throw new IllegalArgumentException("Membership number out of range: " + number);
+        }
+    }
+}
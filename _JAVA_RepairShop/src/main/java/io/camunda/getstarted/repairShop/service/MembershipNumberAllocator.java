@@ -0,0 +1,65 @@
+package io.camunda.getstarted.repairShop.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Issues unique membership numbers from a free-space bitmap.
+ *
+ * The bitmap is seeded from the persisted member register at startup and every
+ * number handed out is claimed with compare-and-set, so concurrent sign-ups can
+ * never receive the same number. When several worker nodes share one register,
+ * each node is given its own contiguous block of the number space through
+ * nodeId/nodeCount, which keeps allocation collision-free across nodes as well.
+ */
+public class MembershipNumberAllocator {
+
+    // 000000 is never issued, matching the original 1-999999 range
+    private static final int FIRST_NUMBER = 1;
+
+    private final MembershipIndex allocated = new MembershipIndex();
+    private final int lowerBound;
+    private final int upperBound;
+
+    /**
+     * @param nodeId    Index of this worker node, from 0 to nodeCount - 1
+     * @param nodeCount Number of worker nodes sharing the membership register
+     */
+    public MembershipNumberAllocator(int nodeId, int nodeCount) {
+        if (nodeCount < 1 || nodeId < 0 || nodeId >= nodeCount) {
+            throw new IllegalArgumentException("Invalid allocator node " + nodeId + " of " + nodeCount);
+        }
+        int blockSize = (MembershipIndex.CAPACITY - FIRST_NUMBER) / nodeCount;
+        this.lowerBound = FIRST_NUMBER + nodeId * blockSize;
+        this.upperBound = nodeId == nodeCount - 1 ? MembershipIndex.CAPACITY : lowerBound + blockSize;
+    }
+
+    /**
+     * Marks a number as taken, e.g. when it is loaded from the register or added elsewhere
+     */
+    public void markAllocated(int number) {
+        allocated.add(number);
+    }
+
+    /**
+     * Returns a number that was allocated but never persisted to the free pool
+     */
+    public void release(int number) {
+        allocated.remove(number);
+    }
+
+    /**
+     * Claims a free membership number in this node's block
+     * @return The claimed number
+     * @throws IllegalStateException if the block has no free numbers left
+     */
+    public int allocate() {
+        // Random starting point keeps issued numbers spread out instead of sequential
+        int start = ThreadLocalRandom.current().nextInt(lowerBound, upperBound);
+        int number = allocated.claimFree(start, lowerBound, upperBound);
+        if (number < 0) {
+            throw new IllegalStateException("No free membership numbers left in range "
+                    + MembershipIndex.format(lowerBound) + "-" + MembershipIndex.format(upperBound - 1));
+        }
+        return number;
+    }
+}
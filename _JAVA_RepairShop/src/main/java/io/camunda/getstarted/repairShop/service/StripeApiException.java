@@ -0,0 +1,41 @@
+package io.camunda.getstarted.repairShop.service;
+
+/**
+ * Non-2xx response from the Stripe API, keeping the status code so callers can
+ * tell rate limiting apart from other failures.
+ */
+public class StripeApiException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String responseBody;
+    // Delay requested by a Retry-After header, or -1 if none was sent
+    private final long retryAfterMillis;
+
+    public StripeApiException(int statusCode, String responseBody, long retryAfterMillis) {
+        super("Stripe API error (status " + statusCode + "): " + responseBody);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return true if Stripe rejected the call with 429 Too Many Requests
+     */
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+}
@@ -0,0 +1,145 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker for Stripe calls.
+ *
+ * Only outage failures count against Stripe: connection errors, timeouts and 5xx
+ * responses. After the configured number of them in a row the breaker opens and
+ * calls fail fast with StripeUnavailableException instead of waiting on timeouts.
+ * Once the open period has passed, a limited number of trial calls are let
+ * through (half open); a successful trial closes the breaker, a failed one opens
+ * it again. Any response from Stripe, including 4xx and 429, shows it is
+ * reachable and counts as a success here.
+ */
+@Component
+public class StripeCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private int trialCalls;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param failureThreshold Outage failures in a row that open the breaker
+     * @param openMillis       How long the breaker stays open before trial calls are let through
+     * @param halfOpenCalls    Trial calls allowed while half open
+     */
+    public StripeCircuitBreaker(@Value("${stripe.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                @Value("${stripe.circuit-breaker.open-ms:30000}") long openMillis,
+                                @Value("${stripe.circuit-breaker.half-open-calls:1}") int halfOpenCalls) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * Takes permission to send a call
+     * @return false if the call must fail fast because Stripe is considered down
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            trialCalls = 0;
+            logger.info("Stripe circuit breaker half open, letting {} trial call(s) through", halfOpenCalls);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && trialCalls < halfOpenCalls) {
+            trialCalls++;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * @return true if a call would currently be let through, without taking a trial call
+     */
+    public synchronized boolean isAvailable() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.currentTimeMillis() >= openUntil;
+            default:
+                return trialCalls < halfOpenCalls;
+        }
+    }
+
+    /**
+     * Records how a sent call ended
+     * @param error The failure of the call, or null if it succeeded
+     */
+    public void onResult(Throwable error) {
+        if (error != null && isOutage(error)) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            logger.info("Stripe circuit breaker closed, Stripe is reachable again");
+        }
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+            opened.increment();
+            logger.warn("Stripe circuit breaker opened after {} failure(s), failing fast for {} ms",
+                    consecutiveFailures, openMillis);
+        }
+    }
+
+    /**
+     * @return true if a failure means Stripe could not be reached or is failing, rather than rejecting the request
+     */
+    public static boolean isOutage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof StripeUnavailableException
+                || cause instanceof IOException
+                || (cause instanceof StripeApiException && ((StripeApiException) cause).getStatusCode() >= 500);
+    }
+
+    /**
+     * @return Current state, consecutive failures and how often the breaker opened or rejected a call
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("opened", opened.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,237 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Email to Stripe customer ID cache, so repeat customers are invoiced against
+ * their existing Stripe customer instead of a new one being created each time.
+ *
+ * Entries live in an access-ordered LinkedHashMap bounded to the configured size
+ * and expire after the configured TTL. Every entry is also written to a small
+ * MVStore file, which is read back on startup so the cache survives restarts.
+ *
+ * Keys are prefixed with the Stripe mode and a fingerprint of the API key, so
+ * customer IDs of a test account are never used against a live one or another
+ * account. Entries stored under another prefix stay on disk but are not loaded.
+ */
+@Component
+public class StripeCustomerCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeCustomerCache.class);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final MVStore store;
+    // "mode:fingerprint:" prefix of every key, see namespace()
+    private final String namespace;
+    // Namespaced email -> "storedAtMillis|customerId"
+    private final MVMap<String, String> persisted;
+    private final Map<String, CachedCustomer> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Opens the backing store and loads every unexpired entry
+     * @param maxSize   Maximum number of customers held
+     * @param ttlHours  How long a cached customer ID is trusted before Stripe is asked again
+     * @param filePath  Location of the MVStore file
+     * @param apiKey    Stripe secret key, selects the account and mode entries belong to
+     */
+    public StripeCustomerCache(@Value("${stripe.customer-cache.max-size:10000}") int maxSize,
+                               @Value("${stripe.customer-cache.ttl-hours:720}") long ttlHours,
+                               @Value("${stripe.customer-cache.file-path:src/main/resources/data/stripe-customers.mv.db}") String filePath,
+                               @Value("${stripe.api.key:}") String apiKey)
+            throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Stripe customer cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        this.namespace = namespace(apiKey);
+        this.entries = new LinkedHashMap<String, CachedCustomer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCustomer> eldest) {
+                if (size() > StripeCustomerCache.this.maxSize) {
+                    persisted.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.store = new MVStore.Builder()
+                .fileName(path.toString())
+                .open();
+        this.persisted = store.openMap("customers");
+
+        load();
+    }
+
+    /**
+     * Reads the persisted entries back in, oldest first so the newest end up most recently used
+     */
+    private synchronized void load() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, CachedCustomer>> loaded = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, String> row : persisted.entrySet()) {
+            if (!row.getKey().startsWith(namespace)) {
+                // Keys from before namespacing cannot be tied to an account, drop them
+                if (!row.getKey().startsWith("test:") && !row.getKey().startsWith("live:")) {
+                    expired.add(row.getKey());
+                }
+                continue;
+            }
+            CachedCustomer entry = CachedCustomer.parse(row.getValue());
+            if (entry == null || now - entry.storedAt > ttlMillis) {
+                expired.add(row.getKey());
+            } else {
+                loaded.add(Map.entry(row.getKey(), entry));
+            }
+        }
+        expired.forEach(persisted::remove);
+
+        loaded.sort(Comparator.comparingLong(e -> e.getValue().storedAt));
+        for (Map.Entry<String, CachedCustomer> e : loaded) {
+            entries.put(e.getKey(), e.getValue());
+        }
+        logger.info("Loaded {} cached Stripe customers for {} ({} expired entries dropped)",
+                entries.size(), namespace, expired.size());
+    }
+
+    /**
+     * @return The cached Stripe customer ID for an email, or null on a miss or expired entry
+     */
+    public synchronized String get(String email) {
+        String key = namespace + normalize(email);
+        CachedCustomer entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            entries.remove(key);
+            persisted.remove(key);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.customerId;
+    }
+
+    /**
+     * Caches and persists the Stripe customer ID for an email
+     */
+    public synchronized void put(String email, String customerId) {
+        if (email == null || customerId == null) {
+            return;
+        }
+        String key = namespace + normalize(email);
+        CachedCustomer entry = new CachedCustomer(customerId, System.currentTimeMillis());
+        entries.put(key, entry);
+        persisted.put(key, entry.format());
+    }
+
+    /**
+     * Drops a cached customer, e.g. after Stripe reports it no longer exists
+     */
+    public synchronized void invalidate(String email) {
+        String key = namespace + normalize(email);
+        entries.remove(key);
+        persisted.remove(key);
+    }
+
+    /**
+     * @return Size, hit and miss counters of the cache
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) entries.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        store.close();
+    }
+
+    /**
+     * @return "test:" or "live:" followed by the first 8 hex digits of the key's SHA-256 and ":"
+     */
+    static String namespace(String apiKey) {
+        String key = apiKey == null ? "" : apiKey.trim();
+        String mode = key.contains("_test_") ? "test" : "live";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder fingerprint = new StringBuilder(mode).append(':');
+            for (int i = 0; i < 4; i++) {
+                fingerprint.append(String.format("%02x", digest[i]));
+            }
+            return fingerprint.append(':').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return The cache key for an email, also used to coalesce concurrent lookups
+     */
+    static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class CachedCustomer {
+        final String customerId;
+        final long storedAt;
+
+        CachedCustomer(String customerId, long storedAt) {
+            this.customerId = customerId;
+            this.storedAt = storedAt;
+        }
+
+        String format() {
+            return storedAt + "|" + customerId;
+        }
+
+        static CachedCustomer parse(String value) {
+            int separator = value == null ? -1 : value.indexOf('|');
+            if (separator < 0) {
+                return null;
+            }
+            try {
+                return new CachedCustomer(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
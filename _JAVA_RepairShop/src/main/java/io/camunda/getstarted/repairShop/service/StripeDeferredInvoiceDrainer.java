@@ -0,0 +1,158 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates deferred invoices once Stripe is reachable again, at a fixed rate so
+ * the backlog from an outage does not hit Stripe all at once.
+ *
+ * Every tick, while the circuit breaker lets calls through, the oldest queued
+ * invoice is run through the normal invoice pipeline under its original invoice
+ * key. The outbox and idempotency keys make this safe for invoices that got part
+ * way before the outage. The completion listener is told about each created
+ * invoice, and the entry is only removed from the queue once it has succeeded.
+ * Nothing is drained until a listener is set, so invoices restored at startup
+ * are never created without being reported.
+ */
+@Component
+public class StripeDeferredInvoiceDrainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeDeferredInvoiceDrainer.class);
+
+    /**
+     * Reports a deferred invoice that has now been created, e.g. to its process instance
+     */
+    public interface CompletionListener {
+        CompletionStage<?> invoiceCreated(StripeDeferredInvoiceQueue.DeferredInvoice invoice, Map<String, Object> result);
+    }
+
+    private final StripeInvoiceService stripeInvoiceService;
+    private final StripeDeferredInvoiceQueue queue;
+    private final StripeCircuitBreaker circuitBreaker;
+
+    private final double invoicesPerSecond;
+    private final int maxAttempts;
+    private final ScheduledExecutorService scheduler;
+
+    // Invoice keys currently being created, so a slow one is not started twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile CompletionListener listener;
+
+    private final LongAdder drained = new LongAdder();
+
+    /**
+     * @param invoicesPerSecond Rate at which queued invoices are sent to Stripe
+     * @param maxAttempts       Non-outage failures after which an invoice is parked
+     */
+    public StripeDeferredInvoiceDrainer(StripeInvoiceService stripeInvoiceService,
+                                        StripeDeferredInvoiceQueue queue,
+                                        StripeCircuitBreaker circuitBreaker,
+                                        @Value("${stripe.deferred.drain-per-second:5}") double invoicesPerSecond,
+                                        @Value("${stripe.deferred.max-attempts:20}") int maxAttempts) {
+        if (invoicesPerSecond <= 0) {
+            throw new IllegalArgumentException("Deferred invoice drain rate must be positive: " + invoicesPerSecond);
+        }
+        this.stripeInvoiceService = stripeInvoiceService;
+        this.queue = queue;
+        this.circuitBreaker = circuitBreaker;
+        this.invoicesPerSecond = invoicesPerSecond;
+        this.maxAttempts = maxAttempts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stripe-deferred-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(1, Math.round(1000 / invoicesPerSecond));
+        scheduler.scheduleWithFixedDelay(this::drainNext, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets who is told about deferred invoices once they have been created
+     */
+    public void setCompletionListener(CompletionListener listener) {
+        this.listener = listener;
+    }
+
+    private void drainNext() {
+        try {
+            CompletionListener current = listener;
+            if (current == null || !circuitBreaker.isAvailable()) {
+                return;
+            }
+            StripeDeferredInvoiceQueue.DeferredInvoice invoice = queue.next(inFlight::contains);
+            if (invoice != null && inFlight.add(invoice.invoiceKey)) {
+                try {
+                    drain(invoice, current);
+                } catch (RuntimeException e) {
+                    inFlight.remove(invoice.invoiceKey);
+                    throw e;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, the next tick tries again
+            logger.error("Error draining deferred Stripe invoices", e);
+        }
+    }
+
+    private void drain(StripeDeferredInvoiceQueue.DeferredInvoice invoice, CompletionListener listener) {
+        logger.info("Creating deferred Stripe invoice {} (deferred {} s ago)", invoice.invoiceKey,
+                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - invoice.deferredAt));
+
+        stripeInvoiceService.generateInvoiceAsync(invoice.invoiceKey, invoice.customerEmail, invoice.customerName,
+                        invoice.description, invoice.vehicleDetails, invoice.amount)
+                .thenCompose(result -> listener.invoiceCreated(invoice, result))
+                .whenComplete((reported, error) -> {
+                    try {
+                        if (error == null) {
+                            queue.remove(invoice.invoiceKey);
+                            drained.increment();
+                            logger.info("Deferred Stripe invoice {} created and reported", invoice.invoiceKey);
+                        } else if (StripeCircuitBreaker.isOutage(error)) {
+                            logger.info("Stripe still unavailable, deferred invoice {} stays queued", invoice.invoiceKey);
+                        } else {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            logger.warn("Deferred Stripe invoice {} failed: {}", invoice.invoiceKey, cause.getMessage());
+                            queue.recordFailure(invoice.invoiceKey, cause.getMessage(), maxAttempts);
+                        }
+                    } finally {
+                        inFlight.remove(invoice.invoiceKey);
+                    }
+                });
+    }
+
+    /**
+     * @return Queued and parked invoice counts, and how many have been drained since startup
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>(queue.getStats());
+        stats.put("inFlight", (long) inFlight.size());
+        stats.put("drained", drained.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,238 @@
+package io.camunda.getstarted.repairShop.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Durable queue of invoices that could not be created because Stripe was down.
+ *
+ * Entries are keyed by invoice key, so deferring the same invoice twice keeps one
+ * entry, and are written to a local MVStore file and synced before the job that
+ * deferred them completes. An entry is only removed once its invoice has been
+ * created and reported, so none is lost across restarts. Invoices that keep
+ * failing for reasons other than an outage are parked after the configured
+ * number of attempts and kept for manual follow-up.
+ *
+ * A second map holds the keys of the invoices that are not parked, ordered by
+ * when they were queued, so the drainer reads the oldest entries one by one
+ * instead of parsing the whole queue on every tick.
+ */
+@Component
+public class StripeDeferredInvoiceQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeDeferredInvoiceQueue.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MVStore store;
+    // Invoice key -> DeferredInvoice as JSON
+    private final MVMap<String, String> entries;
+    // Queue position -> invoice key of every invoice that is not parked, oldest first
+    private final MVMap<Long, String> order;
+    // Guarded by this
+    private long nextPosition;
+
+    /**
+     * Opens the queue file
+     * @param filePath Location of the MVStore file
+     */
+    public StripeDeferredInvoiceQueue(@Value("${stripe.deferred.file-path:src/main/resources/data/stripe-deferred.mv.db}") String filePath)
+            throws IOException {
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.store = new MVStore.Builder()
+                .fileName(path.toString())
+                .open();
+        this.entries = store.openMap("invoices");
+        this.order = store.openMap("order");
+        if (order.isEmpty() && !entries.isEmpty()) {
+            rebuildOrder();
+        }
+        Long last = order.lastKey();
+        this.nextPosition = last == null ? 0 : last + 1;
+        logger.info("Opened deferred Stripe invoice queue at {} with {} invoices waiting", path, order.size());
+    }
+
+    /**
+     * Fills the order map of a queue file written before it existed
+     */
+    private void rebuildOrder() {
+        List<DeferredInvoice> pending = new ArrayList<>();
+        for (String json : entries.values()) {
+            DeferredInvoice invoice = parse(json);
+            if (!invoice.parked) {
+                pending.add(invoice);
+            }
+        }
+        pending.sort(Comparator.comparingLong(invoice -> invoice.deferredAt));
+        long position = 0;
+        for (DeferredInvoice invoice : pending) {
+            invoice.position = position;
+            order.put(position++, invoice.invoiceKey);
+            put(invoice);
+        }
+        store.commit();
+        store.sync();
+    }
+
+    /**
+     * Durably queues an invoice for later creation
+     * @return false if the invoice was already queued
+     */
+    public synchronized boolean add(DeferredInvoice invoice) {
+        if (entries.containsKey(invoice.invoiceKey)) {
+            return false;
+        }
+        invoice.deferredAt = System.currentTimeMillis();
+        invoice.position = nextPosition++;
+        order.put(invoice.position, invoice.invoiceKey);
+        write(invoice);
+        return true;
+    }
+
+    /**
+     * @return The oldest queued invoice that is not parked and not skipped, or null if there is none.
+     *         Only the entries looked at are read.
+     */
+    public DeferredInvoice next(Predicate<String> skip) {
+        Iterator<Long> positions = order.keyIterator(null);
+        while (positions.hasNext()) {
+            String invoiceKey = order.get(positions.next());
+            if (invoiceKey == null || skip.test(invoiceKey)) {
+                continue;
+            }
+            String json = entries.get(invoiceKey);
+            if (json != null) {
+                return parse(json);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Queued invoices that are not parked, oldest first
+     */
+    public List<DeferredInvoice> pending() {
+        List<DeferredInvoice> pending = new ArrayList<>();
+        for (String invoiceKey : order.values()) {
+            String json = entries.get(invoiceKey);
+            if (json != null) {
+                pending.add(parse(json));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Removes an invoice that has been created and reported
+     */
+    public synchronized void remove(String invoiceKey) {
+        String json = entries.remove(invoiceKey);
+        if (json != null) {
+            order.remove(parse(json).position, invoiceKey);
+        }
+        store.commit();
+        store.sync();
+    }
+
+    /**
+     * Records a failed attempt that was not caused by an outage, parking the invoice after too many
+     * @param maxAttempts Attempts after which the invoice is no longer retried
+     */
+    public synchronized void recordFailure(String invoiceKey, String error, int maxAttempts) {
+        String json = entries.get(invoiceKey);
+        if (json == null) {
+            return;
+        }
+        DeferredInvoice invoice = parse(json);
+        invoice.attempts++;
+        invoice.lastError = error;
+        if (invoice.attempts >= maxAttempts) {
+            invoice.parked = true;
+            order.remove(invoice.position, invoiceKey);
+            logger.error("Parked deferred Stripe invoice {} after {} attempts, last error: {}",
+                    invoiceKey, invoice.attempts, error);
+        }
+        write(invoice);
+    }
+
+    /**
+     * @return Queued, parked and total invoice counts
+     */
+    public synchronized Map<String, Long> getStats() {
+        // Parked invoices are the ones left out of the order map
+        long queued = order.sizeAsLong();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("queued", queued);
+        stats.put("parked", entries.sizeAsLong() - queued);
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        store.close();
+    }
+
+    private void write(DeferredInvoice invoice) {
+        put(invoice);
+        store.commit();
+        store.sync();
+    }
+
+    private void put(DeferredInvoice invoice) {
+        try {
+            entries.put(invoice.invoiceKey, objectMapper.writeValueAsString(invoice));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DeferredInvoice parse(String json) {
+        try {
+            return objectMapper.readValue(json, DeferredInvoice.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Everything needed to create an invoice and report it to its process instance later
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DeferredInvoice {
+        public String invoiceKey;
+        public String processInstanceKey;
+        public String customerEmail;
+        public String customerName;
+        public String description;
+        public String vehicleDetails;
+        public double amount;
+        public long deferredAt;
+        // Key of the invoice in the order map
+        public long position;
+        public int attempts;
+        public String lastError;
+        public boolean parked;
+    }
+}
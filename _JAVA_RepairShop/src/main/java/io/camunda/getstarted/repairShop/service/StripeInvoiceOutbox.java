@@ -0,0 +1,166 @@
+package io.camunda.getstarted.repairShop.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durable record of how far each invoice got through the Stripe call sequence.
+ *
+ * Every step that Stripe has acknowledged is written to a local MVStore file and
+ * synced before the next step starts. When a stripe-invoice job is retried, the
+ * pipeline reads the record back and resumes at the first step that has not
+ * completed, instead of creating a second invoice item and invoice. Records are
+ * kept for the retention period after they were last updated, so a job whose
+ * completion failed after a successful invoice is also answered from here.
+ */
+@Component
+public class StripeInvoiceOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeInvoiceOutbox.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MVStore store;
+    // Invoice key -> InvoiceProgress as JSON
+    private final MVMap<String, String> records;
+
+    private final LongAdder resumed = new LongAdder();
+
+    /**
+     * Opens the outbox file and drops records older than the retention period
+     * @param filePath       Location of the MVStore file
+     * @param retentionHours How long a record is kept after its last update
+     */
+    public StripeInvoiceOutbox(@Value("${stripe.outbox.file-path:src/main/resources/data/stripe-outbox.mv.db}") String filePath,
+                               @Value("${stripe.outbox.retention-hours:168}") long retentionHours) throws IOException {
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.store = new MVStore.Builder()
+                .fileName(path.toString())
+                .open();
+        this.records = store.openMap("invoices");
+
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        List<String> expired = new ArrayList<>();
+        int pending = 0;
+        for (Map.Entry<String, String> record : records.entrySet()) {
+            InvoiceProgress progress = parse(record.getValue());
+            if (progress.updatedAt < cutoff) {
+                expired.add(record.getKey());
+            } else if (!progress.isComplete()) {
+                pending++;
+            }
+        }
+        expired.forEach(records::remove);
+        store.commit();
+
+        logger.info("Opened Stripe invoice outbox at {} with {} incomplete invoices ({} expired records dropped)",
+                path, pending, expired.size());
+    }
+
+    /**
+     * @return The recorded progress for an invoice, or a fresh record if it has not been started
+     */
+    public InvoiceProgress get(String invoiceKey) {
+        String json = records.get(invoiceKey);
+        if (json == null) {
+            return new InvoiceProgress();
+        }
+        InvoiceProgress progress = parse(json);
+        if (progress.customerId != null) {
+            resumed.increment();
+            logger.info("Resuming Stripe invoice {} from recorded progress: {}", invoiceKey, progress.describe());
+        }
+        return progress;
+    }
+
+    /**
+     * Durably records the progress of an invoice before the next step runs
+     */
+    public synchronized void save(String invoiceKey, InvoiceProgress progress) {
+        progress.updatedAt = System.currentTimeMillis();
+        try {
+            records.put(invoiceKey, objectMapper.writeValueAsString(progress));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        store.commit();
+        store.sync();
+    }
+
+    /**
+     * @return Incomplete record and resumed invoice counters
+     */
+    public Map<String, Long> getStats() {
+        long pending = 0;
+        for (String json : records.values()) {
+            if (!parse(json).isComplete()) {
+                pending++;
+            }
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("records", (long) records.size());
+        stats.put("incomplete", pending);
+        stats.put("resumed", resumed.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        store.close();
+    }
+
+    private InvoiceProgress parse(String json) {
+        try {
+            return objectMapper.readValue(json, InvoiceProgress.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Results of the Stripe steps completed so far for one invoice
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class InvoiceProgress {
+        public String customerId;
+        public String invoiceItemId;
+        public String invoiceId;
+        public boolean finalized;
+        public boolean sent;
+        // Set once every step has run, including a tolerated failure to send the email
+        public boolean completed;
+        // Fields of the latest invoice object returned by Stripe that the result is built from, as JSON
+        public String invoice;
+        public long updatedAt;
+
+        boolean isComplete() {
+            return completed;
+        }
+
+        String describe() {
+            return "customer=" + customerId + ", item=" + invoiceItemId + ", invoice=" + invoiceId
+                    + ", finalized=" + finalized + ", sent=" + sent + ", completed=" + completed;
+        }
+    }
+}
@@ -5,22 +5,35 @@ import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.NameValuePair;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 @Service
 public class StripeInvoiceService {
@@ -28,6 +41,14 @@ public class StripeInvoiceService {
     private static final Logger logger = LoggerFactory.getLogger(StripeInvoiceService.class);
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Readers bound to the typed responses, built once instead of resolving the type per call
+    private final ObjectReader customerReader = objectMapper.readerFor(StripeResponses.Customer.class);
+    private final ObjectReader customerListReader = objectMapper.readerFor(StripeResponses.CustomerList.class);
+    private final ObjectReader invoiceItemReader = objectMapper.readerFor(StripeResponses.InvoiceItem.class);
+    private final ObjectReader invoiceReader = objectMapper.readerFor(StripeResponses.Invoice.class);
+    private final ObjectReader errorReader = objectMapper.readerFor(StripeResponses.ErrorResponse.class);
+    private final ObjectWriter invoiceWriter = objectMapper.writerFor(StripeResponses.Invoice.class);
+
     @Value("${stripe.api.key:}")
     private String apiKey;
 
@@ -40,108 +61,519 @@ public class StripeInvoiceService {
     @Value("${stripe.currency:gbp}")
     private String currency;
 
+    // How often a call rejected with 429 is retried before the failure is returned
+    @Value("${stripe.rate-limit.max-retries:3}")
+    private int maxRateLimitRetries;
+
+    // HTTP client shared by all Stripe calls, pooled Apache or HTTP/2 JDK, see StripeHttpClientConfig
+    private final StripeTransport transport;
+
+    // Email -> Stripe customer ID, so repeat customers skip the customer lookup
+    private final StripeCustomerCache customerCache;
+
+    // Customer lookups currently running, keyed by normalized email, so concurrent
+    // jobs for the same customer share one Stripe call and one result
+    private final ConcurrentHashMap<String, CompletableFuture<String>> customerLookups = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCustomerLookups = new LongAdder();
+
+    // Durable per-invoice step progress, lets a retried job resume where it stopped
+    private final StripeInvoiceOutbox invoiceOutbox;
+
+    // Token bucket and adaptive in-flight limit every Stripe call is admitted through
+    private final StripeRateLimiter rateLimiter;
+
+    // Per-endpoint latency tracking and optional duplicate requests for slow calls
+    private final StripeRequestHedger requestHedger;
+
+    // Sampled, redacted request/response body logging, off unless stripe.logging.payloads is set
+    private final StripePayloadLogger payloadLogger;
+
+    // Fails calls fast while Stripe is down, and the queue invoices wait in meanwhile
+    private final StripeCircuitBreaker circuitBreaker;
+    private final StripeDeferredInvoiceQueue deferredInvoices;
+
+    // Runs the outbox, customer cache and deferred queue writes of non-blocking calls, so
+    // their locks and disk syncs never hold up the transport's I/O threads
+    private final ExecutorService persistenceExecutor;
+
+    /**
+     * @param persistenceThreads   Threads writing the local stores for non-blocking calls
+     * @param persistenceQueueSize Writes that may wait for one of them before new ones are rejected
+     */
+    public StripeInvoiceService(StripeTransport stripeTransport,
+                                StripeCustomerCache customerCache,
+                                StripeInvoiceOutbox invoiceOutbox,
+                                StripeRateLimiter rateLimiter,
+                                StripeRequestHedger requestHedger,
+                                StripePayloadLogger payloadLogger,
+                                StripeCircuitBreaker circuitBreaker,
+                                StripeDeferredInvoiceQueue deferredInvoices,
+                                @Value("${stripe.persistence.threads:2}") int persistenceThreads,
+                                @Value("${stripe.persistence.queue-size:10000}") int persistenceQueueSize) {
+        this.transport = stripeTransport;
+        this.customerCache = customerCache;
+        this.invoiceOutbox = invoiceOutbox;
+        this.rateLimiter = rateLimiter;
+        this.requestHedger = requestHedger;
+        this.payloadLogger = payloadLogger;
+        this.circuitBreaker = circuitBreaker;
+        this.deferredInvoices = deferredInvoices;
+        this.persistenceExecutor = new ThreadPoolExecutor(persistenceThreads, persistenceThreads,
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(persistenceQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "stripe-persistence");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        // Let queued writes finish, the stores are closed after this bean
+        persistenceExecutor.shutdown();
+        persistenceExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
     /**
      * Creates a Stripe invoice for a customer
+     * @param invoiceKey Stable key for this invoice, e.g. derived from the job key, so a
+     *                   retry resumes the same invoice instead of creating another one
      * @param customerEmail Customer email for the invoice
      * @param customerName Customer name for the invoice
      * @param description Description of the service/product
      * @param vehicleDetails Vehicle details to include in the invoice
      * @param amount Total amount to charge
      * @return Map containing invoice information
+     * @throws CompletionException If Stripe failed or could not be reached
      */
-    public Map<String, Object> generateInvoice(String customerEmail, String customerName,
+    public Map<String, Object> generateInvoice(String invoiceKey, String customerEmail, String customerName,
                                               String description, String vehicleDetails,
                                               double amount) {
+        return runInvoicePipeline(blockingExchange, invoiceKey, customerEmail, customerName,
+                description, vehicleDetails, amount).join();
+    }
+
+    /**
+     * Creates a Stripe invoice for a customer without blocking the calling thread.
+     * Runs the same customer → item → invoice → finalize → send steps as
+     * generateInvoice, each chained on the previous call's response, on the
+     * non-blocking HTTP client.
+     * @param invoiceKey Stable key for this invoice, e.g. derived from the job key
+     * @param customerEmail Customer email for the invoice
+     * @param customerName Customer name for the invoice
+     * @param description Description of the service/product
+     * @param vehicleDetails Vehicle details to include in the invoice
+     * @param amount Total amount to charge
+     * @return Future completing with the same invoice information map as generateInvoice,
+     *         or failing if Stripe failed or could not be reached
+     */
+    public CompletableFuture<Map<String, Object>> generateInvoiceAsync(String invoiceKey, String customerEmail,
+                                                                       String customerName, String description,
+                                                                       String vehicleDetails, double amount) {
+        return runInvoicePipeline(asyncExchange, invoiceKey, customerEmail, customerName,
+                description, vehicleDetails, amount);
+    }
+
+    /**
+     * Runs the invoice steps on the given exchange. Each step sends an Idempotency-Key
+     * derived from the invoice key, and its result is recorded in the outbox before
+     * the next step starts, so a retried job skips every step Stripe already
+     * acknowledged and repeats the others without creating duplicates.
+     */
+    private CompletableFuture<Map<String, Object>> runInvoicePipeline(Exchange exchange, String invoiceKey,
+                                                                      String customerEmail, String customerName,
+                                                                      String description, String vehicleDetails,
+                                                                      double amount) {
+        logInvoiceRequest(customerName, amount);
+        payloadLogger.onInvoice();
+
+        CompletableFuture<Map<String, Object>> pipeline;
+        try {
+            StripeInvoiceOutbox.InvoiceProgress progress = invoiceOutbox.get(invoiceKey);
+            if (progress.completed) {
+                logger.info("Stripe invoice {} was already created for {}", progress.invoiceId, invoiceKey);
+                pipeline = CompletableFuture.completedFuture(buildInvoiceResult(readInvoice(progress.invoice),
+                        customerEmail, customerName, progress.customerId, description, vehicleDetails, amount));
+            } else {
+                pipeline = runInvoiceSteps(exchange, invoiceKey, progress, customerEmail, customerName,
+                        description, vehicleDetails, amount);
+            }
+        } catch (RuntimeException e) {
+            pipeline = CompletableFuture.failedFuture(e);
+        }
+
+        return pipeline.whenComplete((result, e) -> {
+            // Outages are logged where the invoice is deferred or kept queued
+            if (e != null && !StripeCircuitBreaker.isOutage(e)) {
+                logger.error("Error creating Stripe invoice {}", invoiceKey, unwrap(e));
+            }
+        });
+    }
+
+    /**
+     * Creates a Stripe invoice like generateInvoiceAsync, but when Stripe is down the
+     * invoice is durably queued instead of failing, and created once Stripe recovers
+     * by the StripeDeferredInvoiceDrainer, which then reports it to the process instance.
+     * @param invoiceKey Stable key for this invoice, e.g. derived from the job key
+     * @param processInstanceKey Process instance a deferred invoice is reported to
+     * @return Future completing with the invoice information map, or with a map with
+     *         deferred=true and status "deferred" if the invoice was queued
+     */
+    public CompletableFuture<Map<String, Object>> generateOrDeferInvoiceAsync(String invoiceKey, String processInstanceKey,
+                                                                              String customerEmail, String customerName,
+                                                                              String description, String vehicleDetails,
+                                                                              double amount) {
+        return generateInvoiceAsync(invoiceKey, customerEmail, customerName, description, vehicleDetails, amount)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    if (!StripeCircuitBreaker.isOutage(error)) {
+                        return CompletableFuture.<Map<String, Object>>failedFuture(unwrap(error));
+                    }
+                    return asyncExchange.persist(() -> defer(invoiceKey, processInstanceKey, customerEmail,
+                            customerName, description, vehicleDetails, amount, unwrap(error)));
+                })
+                .thenCompose(result -> result);
+    }
+
+    /**
+     * Durably queues an invoice until Stripe recovers
+     * @param outage The failure that showed Stripe is down
+     * @return The result reported for the deferred invoice
+     */
+    private Map<String, Object> defer(String invoiceKey, String processInstanceKey, String customerEmail,
+                                      String customerName, String description, String vehicleDetails,
+                                      double amount, Throwable outage) {
+        StripeDeferredInvoiceQueue.DeferredInvoice deferred = new StripeDeferredInvoiceQueue.DeferredInvoice();
+        deferred.invoiceKey = invoiceKey;
+        deferred.processInstanceKey = processInstanceKey;
+        deferred.customerEmail = customerEmail;
+        deferred.customerName = customerName;
+        deferred.description = description;
+        deferred.vehicleDetails = vehicleDetails;
+        deferred.amount = amount;
+        if (deferredInvoices.add(deferred)) {
+            logger.warn("Stripe unavailable ({}), deferred invoice {} until it recovers",
+                    outage.getMessage(), invoiceKey);
+        } else {
+            logger.info("Invoice {} is already deferred until Stripe recovers", invoiceKey);
+        }
+        return buildDeferredResult(customerEmail, customerName, amount);
+    }
+
+    private CompletableFuture<Map<String, Object>> runInvoiceSteps(Exchange exchange, String invoiceKey,
+                                                                   StripeInvoiceOutbox.InvoiceProgress progress,
+                                                                   String customerEmail, String customerName,
+                                                                   String description, String vehicleDetails,
+                                                                   double amount) {
+        // Create or retrieve the customer
+        CompletableFuture<String> customerStep;
+        if (progress.customerId != null) {
+            customerStep = CompletableFuture.completedFuture(progress.customerId);
+        } else {
+            customerStep = createOrRetrieveCustomer(exchange, customerEmail, customerName,
+                    idempotencyKey(invoiceKey, "customer"))
+                    .thenCompose(customerId -> exchange.persist(() -> {
+                        progress.customerId = customerId;
+                        invoiceOutbox.save(invoiceKey, progress);
+                        return customerId;
+                    }));
+        }
+
+        return customerStep
+                .thenCompose(customerId -> {
+                    logger.info("Using customer with ID: {}", customerId);
+                    if (progress.invoiceItemId != null) {
+                        return CompletableFuture.completedFuture(progress.invoiceItemId);
+                    }
+
+                    // Create an invoice item - this is what was missing in your original code!
+                    // The invoice item needs to exist before creating the invoice
+                    return createInvoiceItem(exchange, invoiceKey, progress, customerId,
+                                description, vehicleDetails, amount, "invoiceitem")
+                            .handle((invoiceItemId, error) -> {
+                                if (error == null) {
+                                    return CompletableFuture.completedFuture(invoiceItemId);
+                                }
+                                if (!isMissingCustomer(error)) {
+                                    return CompletableFuture.<String>failedFuture(unwrap(error));
+                                }
+                                // The cached or recorded customer was deleted in Stripe, look it up
+                                // again under fresh idempotency keys, the old ones would replay it
+                                logger.warn("Stripe customer {} no longer exists, looking up customer for {} again",
+                                        customerId, StripePayloadLogger.maskEmail(customerEmail));
+                                return exchange.persist(() -> {
+                                            customerCache.invalidate(customerEmail);
+                                            progress.customerId = null;
+                                            invoiceOutbox.save(invoiceKey, progress);
+                                            return null;
+                                        })
+                                        .thenCompose(ignored -> createOrRetrieveCustomer(exchange, customerEmail,
+                                                customerName, idempotencyKey(invoiceKey, "customer-retry")))
+                                        .thenCompose(newCustomerId -> exchange.persist(() -> {
+                                            progress.customerId = newCustomerId;
+                                            invoiceOutbox.save(invoiceKey, progress);
+                                            return newCustomerId;
+                                        }))
+                                        .thenCompose(newCustomerId -> createInvoiceItem(exchange, invoiceKey, progress,
+                                                newCustomerId, description, vehicleDetails, amount, "invoiceitem-retry"));
+                            })
+                            .thenCompose(invoiceItemId -> invoiceItemId);
+                })
+                .thenCompose(invoiceItemId -> {
+                    logger.info("Created invoice item with ID: {}", invoiceItemId);
+                    if (progress.invoiceId != null) {
+                        return CompletableFuture.completedFuture(readInvoice(progress.invoice));
+                    }
+
+                    // Now create the invoice
+                    return post(exchange, "/invoices", invoiceParams(progress.customerId),
+                                idempotencyKey(invoiceKey, "invoice"))
+                            .thenCompose(body -> exchange.persist(() -> {
+                                StripeResponses.Invoice invoice = readCreatedInvoice(body);
+                                progress.invoiceId = invoice.id;
+                                progress.invoice = writeInvoice(invoice);
+                                invoiceOutbox.save(invoiceKey, progress);
+                                return invoice;
+                            }));
+                })
+                .thenCompose(invoice -> {
+                    String invoiceId = progress.invoiceId;
+                    if (invoiceId == null || progress.finalized) {
+                        return CompletableFuture.completedFuture(invoice);
+                    }
+
+                    // Finalize the invoice explicitly
+                    logger.info("Finalizing invoice with ID: {}", invoiceId);
+                    return post(exchange, "/invoices/" + invoiceId + "/finalize", objectMapper.createObjectNode(),
+                                idempotencyKey(invoiceKey, "finalize"))
+                            .thenCompose(body -> exchange.persist(() -> {
+                                StripeResponses.Invoice finalized = readFinalizedInvoice(invoiceId, body);
+                                progress.finalized = true;
+                                progress.invoice = writeInvoice(finalized);
+                                invoiceOutbox.save(invoiceKey, progress);
+                                return finalized;
+                            }));
+                })
+                .thenCompose(invoice -> {
+                    String invoiceId = progress.invoiceId;
+                    if (invoiceId == null || progress.sent) {
+                        return CompletableFuture.completedFuture(invoice);
+                    }
+
+                    // Now send the invoice via email
+                    logger.info("Sending invoice email to customer for invoice: {}", invoiceId);
+                    return post(exchange, "/invoices/" + invoiceId + "/send", objectMapper.createObjectNode(),
+                                idempotencyKey(invoiceKey, "send"))
+                            .thenApply(body -> {
+                                StripeResponses.Invoice sent = readSentInvoice(body);
+                                progress.sent = true;
+                                progress.invoice = writeInvoice(sent);
+                                return sent;
+                            })
+                            .exceptionally(e -> {
+                                logger.warn("Failed to send invoice email: {}", e.getMessage(), e);
+                                return invoice;
+                            });
+                })
+                .thenCompose(invoice -> exchange.persist(() -> {
+                    progress.completed = true;
+                    invoiceOutbox.save(invoiceKey, progress);
+                    return buildInvoiceResult(invoice, customerEmail, customerName, progress.customerId,
+                            description, vehicleDetails, amount);
+                }));
+    }
+
+    /**
+     * Creates the invoice item for a customer and records its ID in the outbox
+     * @param step Idempotency key step name of this attempt
+     */
+    private CompletableFuture<String> createInvoiceItem(Exchange exchange, String invoiceKey,
+                                                        StripeInvoiceOutbox.InvoiceProgress progress, String customerId,
+                                                        String description, String vehicleDetails, double amount,
+                                                        String step) {
+        return post(exchange, "/invoiceitems",
+                    invoiceItemParams(customerId, description, vehicleDetails, amount),
+                    idempotencyKey(invoiceKey, step))
+                .thenCompose(body -> exchange.persist(() -> {
+                    progress.invoiceItemId = readInvoiceItemId(body);
+                    invoiceOutbox.save(invoiceKey, progress);
+                    return progress.invoiceItemId;
+                }));
+    }
+
+    /**
+     * @return true if Stripe rejected a call because its customer does not exist,
+     *         a 404 or a resource_missing error on the customer parameter
+     */
+    private boolean isMissingCustomer(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof StripeApiException)) {
+            return false;
+        }
+        StripeApiException apiError = (StripeApiException) cause;
+        StripeResponses.ErrorResponse.ApiError body;
+        try {
+            StripeResponses.ErrorResponse response = errorReader.readValue(apiError.getResponseBody());
+            body = response == null ? null : response.error;
+        } catch (IOException | RuntimeException e) {
+            body = null;
+        }
+        if (body == null) {
+            return apiError.getStatusCode() == 404;
+        }
+        boolean missing = apiError.getStatusCode() == 404 || "resource_missing".equals(body.code);
+        boolean aboutCustomer = "customer".equals(body.param)
+                || (body.message != null && body.message.startsWith("No such customer"));
+        return missing && aboutCustomer;
+    }
+
+    /**
+     * Idempotency-Key for one step of one invoice. Stripe replays the original
+     * response for a repeated key, so a retried step cannot create a second object.
+     */
+    private static String idempotencyKey(String invoiceKey, String step) {
+        return "repairshop-" + invoiceKey + "-" + step;
+    }
+
+    private void logInvoiceRequest(String customerName, double amount) {
         logger.info("Generating Stripe invoice for customer: {}", customerName);
         logger.info("Invoice amount: {}{}",
             currency.equalsIgnoreCase("gbp") ? "£" : currency.equalsIgnoreCase("usd") ? "$" : currency + " ",
             String.format("%.2f", amount));
         logger.info("Using Stripe API in {} mode", useTestMode ? "TEST" : "PRODUCTION");
+    }
 
-        try {
-            // Create or retrieve the customer
-            String customerId = createOrRetrieveCustomer(customerEmail, customerName);
-            logger.info("Using customer with ID: {}", customerId);
-
-            // Create an invoice item - this is what was missing in your original code!
-            // The invoice item needs to exist before creating the invoice
-            String invoiceItemId = createInvoiceItem(customerId, description, vehicleDetails, amount);
-            logger.info("Created invoice item with ID: {}", invoiceItemId);
-
-            // Now create and finalize the invoice
-            Map<String, Object> invoiceData = createAndFinalizeInvoice(customerId);
-
-            String invoiceId = (String) invoiceData.get("id");
-            logger.info("Successfully created Stripe invoice with ID: {}", invoiceId);
-
-            // Create a structured response
-            Map<String, Object> result = new HashMap<>();
-            result.put("invoiceId", invoiceId);
-            result.put("amount", amount);
-            result.put("formattedAmount", String.format("%.2f", amount));
-            result.put("customerEmail", customerEmail);
-            result.put("customerName", customerName);
-            result.put("customerId", customerId);
-            result.put("description", description);
-            result.put("vehicleDetails", vehicleDetails);
-            result.put("invoiceUrl", invoiceData.get("hosted_invoice_url"));
-            result.put("invoicePdf", invoiceData.get("invoice_pdf"));
-            result.put("status", invoiceData.get("status"));
-            result.put("createdAt", System.currentTimeMillis());
-            result.put("currency", currency.toLowerCase());
-
-            return result;
-        } catch (Exception e) {
-            logger.error("Error creating Stripe invoice", e);
-
-            // Return error information but still provide a usable object
-            Map<String, Object> errorResult = new HashMap<>();
-            errorResult.put("error", true);
-            errorResult.put("errorMessage", e.getMessage());
-            errorResult.put("customerEmail", customerEmail);
-            errorResult.put("customerName", customerName);
-            errorResult.put("amount", amount);
-            errorResult.put("formattedAmount", String.format("%.2f", amount));
-            errorResult.put("currency", currency.toLowerCase());
-
-            // Generate a fallback invoice ID so the process can continue
-            String fallbackId = "error_inv_" + System.currentTimeMillis();
-            errorResult.put("invoiceId", fallbackId);
-            errorResult.put("status", "error");
-            errorResult.put("createdAt", System.currentTimeMillis());
-
-            return errorResult;
+    /**
+     * Builds the structured response for a created invoice
+     */
+    private Map<String, Object> buildInvoiceResult(StripeResponses.Invoice invoiceData, String customerEmail,
+                                                   String customerName, String customerId, String description,
+                                                   String vehicleDetails, double amount) {
+        String invoiceId = invoiceData.id;
+        logger.info("Successfully created Stripe invoice with ID: {}", invoiceId);
+
+        // Create a structured response
+        Map<String, Object> result = new HashMap<>();
+        result.put("invoiceId", invoiceId);
+        result.put("amount", amount);
+        result.put("formattedAmount", String.format("%.2f", amount));
+        result.put("customerEmail", customerEmail);
+        result.put("customerName", customerName);
+        result.put("customerId", customerId);
+        result.put("description", description);
+        result.put("vehicleDetails", vehicleDetails);
+        result.put("invoiceUrl", invoiceData.hostedInvoiceUrl);
+        result.put("invoicePdf", invoiceData.invoicePdf);
+        result.put("status", invoiceData.status);
+        result.put("createdAt", System.currentTimeMillis());
+        result.put("currency", currency.toLowerCase());
+
+        return result;
+    }
+
+    /**
+     * Builds the response returned when an invoice was queued until Stripe recovers
+     */
+    private Map<String, Object> buildDeferredResult(String customerEmail, String customerName, double amount) {
+        // No invoice exists yet, so there is no invoice ID or URL to hand out
+        Map<String, Object> deferredResult = new HashMap<>();
+        deferredResult.put("deferred", true);
+        deferredResult.put("customerEmail", customerEmail);
+        deferredResult.put("customerName", customerName);
+        deferredResult.put("amount", amount);
+        deferredResult.put("formattedAmount", String.format("%.2f", amount));
+        deferredResult.put("currency", currency.toLowerCase());
+        deferredResult.put("invoiceId", null);
+        deferredResult.put("status", "deferred");
+        deferredResult.put("createdAt", System.currentTimeMillis());
+
+        return deferredResult;
+    }
+
+    /**
+     * Create or retrieve a Stripe customer. Known emails are answered from the
+     * customer cache; on a miss Stripe is searched by email before a new
+     * customer is created, so repeat customers are not duplicated. Concurrent
+     * lookups for the same email share a single Stripe round trip.
+     */
+    private CompletableFuture<String> createOrRetrieveCustomer(Exchange exchange, String email, String name,
+                                                               String idempotencyKey) {
+        String cachedId = customerCache.get(email);
+        if (cachedId != null) {
+            logger.info("Using cached Stripe customer {} for email: {}", cachedId, StripePayloadLogger.maskEmail(email));
+            return CompletableFuture.completedFuture(cachedId);
+        }
+
+        String key = StripeCustomerCache.normalize(email);
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = customerLookups.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            // Another job is already looking this customer up, share its result
+            coalescedCustomerLookups.increment();
+            logger.info("Joining in-flight Stripe customer lookup for email: {}", StripePayloadLogger.maskEmail(email));
+            return exchange.await(inFlight);
         }
+
+        get(exchange, "/customers", customerQuery(email))
+                .thenApply(body -> readFoundCustomerId(email, body))
+                .thenCompose(foundId -> foundId != null
+                        ? CompletableFuture.completedFuture(foundId)
+                        : post(exchange, "/customers", customerParams(email, name), idempotencyKey)
+                                .thenApply(this::readCustomerId))
+                // Cache before leaving the in-flight map so later callers hit the cache
+                .thenCompose(customerId -> exchange.persist(() -> {
+                    customerCache.put(email, customerId);
+                    return customerId;
+                }))
+                .whenComplete((customerId, error) -> {
+                    customerLookups.remove(key, flight);
+                    if (error != null) {
+                        flight.completeExceptionally(error);
+                    } else {
+                        flight.complete(customerId);
+                    }
+                });
+        return flight;
+    }
+
+    private List<NameValuePair> customerQuery(String email) {
+        List<NameValuePair> query = new ArrayList<>();
+        query.add(new BasicNameValuePair("email", email));
+        query.add(new BasicNameValuePair("limit", "1"));
+        return query;
     }
 
     /**
-     * Create or retrieve a Stripe customer
+     * @return The ID of the first customer in a customer list response, or null if it is empty
      */
-    private String createOrRetrieveCustomer(String email, String name) throws Exception {
+    private String readFoundCustomerId(String email, String responseBody) {
+        StripeResponses.CustomerList customers = read(customerListReader, responseBody);
+        if (customers.data != null && !customers.data.isEmpty() && customers.data.get(0) != null) {
+            String customerId = customers.data.get(0).id;
+            logger.info("Found existing Stripe customer {} for email: {}", customerId, StripePayloadLogger.maskEmail(email));
+            return customerId;
+        }
+        logger.info("No existing Stripe customer for email: {}", StripePayloadLogger.maskEmail(email));
+        return null;
+    }
+
+    private ObjectNode customerParams(String email, String name) {
         // Prepare customer data
         ObjectNode customerData = objectMapper.createObjectNode();
         customerData.put("email", email);
         customerData.put("name", name);
 
-        logger.info("Creating/retrieving customer with email: {}, name: {}", email, name);
-
-        // Call Stripe API to create customer
-        String responseBody = callStripeApi("/customers", customerData);
-
-        // Debug log the response
-        logger.info("Stripe customer response: {}", responseBody);
-
-        // Use TypeReference to avoid unchecked conversion warning
-        Map<String, Object> response = objectMapper.readValue(responseBody,
-                                        new TypeReference<Map<String, Object>>() {});
+        logger.info("Creating Stripe customer for email: {}", StripePayloadLogger.maskEmail(email));
+        return customerData;
+    }
 
-        return (String) response.get("id");
+    private String readCustomerId(String responseBody) {
+        StripeResponses.Customer customer = read(customerReader, responseBody);
+        return customer.id;
     }
 
-    /**
-     * Create an invoice item for the customer
-     */
-    private String createInvoiceItem(String customerId, String description, String vehicleDetails, double amount) throws Exception {
+    private ObjectNode invoiceItemParams(String customerId, String description, String vehicleDetails, double amount) {
         // Add vehicle details to description if available
         String fullDescription = description;
         if (vehicleDetails != null && !vehicleDetails.isEmpty()) {
@@ -154,48 +586,35 @@ public class StripeInvoiceService {
         itemData.put("description", fullDescription);
 
         // Debug log before conversion
-        logger.info("Amount before conversion: {}", amount);
+        logger.debug("Amount before conversion: {}", amount);
 
         // Convert to cents/pence (Stripe's smallest unit)
         long amountInSmallestUnit = Math.round(amount * 100);
 
         // Debug log after conversion
-        logger.info("Amount after conversion to smallest unit: {}", amountInSmallestUnit);
+        logger.debug("Amount after conversion to smallest unit: {}", amountInSmallestUnit);
 
         // Only set the amount parameter (not quantity, as they're mutually exclusive)
         itemData.put("amount", amountInSmallestUnit);
         itemData.put("currency", currency.toLowerCase());
         // Don't use quantity parameter as it can't be used with amount
+        return itemData;
+    }
 
-        // Debug log the complete item data
-        logger.info("Invoice item data being sent to Stripe: {}", itemData.toString());
-
-        // Call Stripe API to create invoice item
-        String responseBody = callStripeApi("/invoiceitems", itemData);
-
-        // Debug log the response
-        logger.info("Stripe invoice item response: {}", responseBody);
-
-        // Use TypeReference to avoid unchecked conversion warning
-        Map<String, Object> response = objectMapper.readValue(responseBody,
-                                        new TypeReference<Map<String, Object>>() {});
+    private String readInvoiceItemId(String responseBody) {
+        StripeResponses.InvoiceItem item = read(invoiceItemReader, responseBody);
 
         // Check if amount field exists in response for verification
-        Number itemAmount = null;
-        if (response.containsKey("amount")) {
-            itemAmount = (Number) response.get("amount");
-            logger.info("Created invoice item with amount: {}", itemAmount);
+        if (item.amount != null) {
+            logger.info("Created invoice item with amount: {}", item.amount);
         } else {
             logger.warn("Invoice item response does not contain amount field");
         }
 
-        return (String) response.get("id");
+        return item.id;
     }
 
-    /**
-     * Create and finalize an invoice for the customer
-     */
-    private Map<String, Object> createAndFinalizeInvoice(String customerId) throws Exception {
+    private ObjectNode invoiceParams(String customerId) {
         // Prepare invoice data
         ObjectNode invoiceData = objectMapper.createObjectNode();
         invoiceData.put("customer", customerId);
@@ -210,108 +629,411 @@ public class StripeInvoiceService {
         invoiceData.put("pending_invoice_items_behavior", "include");
 
         logger.info("Creating invoice for customer: {}", customerId);
+        return invoiceData;
+    }
 
-        // Call Stripe API to create invoice
-        String responseBody = callStripeApi("/invoices", invoiceData);
-
-        logger.info("Stripe invoice response: {}", responseBody);
-
+    private StripeResponses.Invoice readCreatedInvoice(String responseBody) {
         // Parse the response
-        Map<String, Object> invoice = objectMapper.readValue(responseBody,
-                                     new TypeReference<Map<String, Object>>() {});
-
-        // Get the invoice ID
-        String invoiceId = (String) invoice.get("id");
-        logger.info("Created invoice with ID: {}", invoiceId);
+        StripeResponses.Invoice invoice = readInvoice(responseBody);
+        logger.info("Created invoice with ID: {}", invoice.id);
 
         // Check if the invoice has a positive amount due
-        Number amountDue = (Number) invoice.get("amount_due");
-        if (amountDue != null) {
-            logger.info("Invoice initial amount_due: {}", amountDue);
+        if (invoice.amountDue != null) {
+            logger.info("Invoice initial amount_due: {}", invoice.amountDue);
         } else {
             logger.warn("Invoice amount_due is null, this might cause a zero-amount invoice");
         }
+        return invoice;
+    }
 
-        if (invoiceId != null) {
-            // Finalize the invoice explicitly
-            ObjectNode finalizeData = objectMapper.createObjectNode();
-            logger.info("Finalizing invoice with ID: {}", invoiceId);
+    private StripeResponses.Invoice readFinalizedInvoice(String invoiceId, String responseBody) {
+        StripeResponses.Invoice invoice = readInvoice(responseBody);
 
-            String finalizeResponseBody = callStripeApi("/invoices/" + invoiceId + "/finalize", finalizeData);
-            logger.info("Finalize invoice response: {}", finalizeResponseBody);
+        // Check amount due after finalization
+        logger.info("Invoice amount_due after finalization: {}", invoice.amountDue);
+        logger.info("Finalized invoice with ID: {}", invoiceId);
+        return invoice;
+    }
 
-            invoice = objectMapper.readValue(finalizeResponseBody,
-                                        new TypeReference<Map<String, Object>>() {});
+    private StripeResponses.Invoice readSentInvoice(String responseBody) {
+        StripeResponses.Invoice invoice = readInvoice(responseBody);
+        logger.info("Invoice email sent successfully to customer");
+        return invoice;
+    }
 
-            // Check amount due after finalization
-            amountDue = (Number) invoice.get("amount_due");
-            logger.info("Invoice amount_due after finalization: {}", amountDue);
+    /**
+     * Parses an invoice response, or an invoice stored in the outbox
+     */
+    private StripeResponses.Invoice readInvoice(String json) {
+        return read(invoiceReader, json);
+    }
 
-            logger.info("Finalized invoice with ID: {}", invoiceId);
+    /**
+     * @return The compact JSON of an invoice's used fields, as kept in the outbox
+     */
+    private String writeInvoice(StripeResponses.Invoice invoice) {
+        try {
+            return invoiceWriter.writeValueAsString(invoice);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            // Now send the invoice via email
+    /**
+     * Parses a Stripe JSON response into its typed form, skipping every field the type does not declare
+     */
+    private static <T> T read(ObjectReader reader, String responseBody) {
+        try {
+            return reader.readValue(responseBody);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid Stripe response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Call the Stripe API with a form-encoded POST
+     * @param idempotencyKey Sent as the Idempotency-Key header so a repeated call is not applied twice
+     */
+    private CompletableFuture<String> post(Exchange exchange, String endpoint, ObjectNode data, String idempotencyKey) {
+        try {
+            return exchange.execute(buildRequest(endpoint, data, idempotencyKey));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Call a Stripe list endpoint with query parameters
+     */
+    private CompletableFuture<String> get(Exchange exchange, String endpoint, List<NameValuePair> query) {
+        try {
+            return exchange.execute(buildGetRequest(endpoint, query));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends prepared Stripe requests, either on the calling thread or without blocking it
+     */
+    private interface Exchange {
+
+        /**
+         * @return The body of the successful response, or a failed future
+         */
+        CompletableFuture<String> execute(StripeRequest request);
+
+        /**
+         * Waits for a result owned by another caller the same way this exchange waits for its own calls
+         */
+        <T> CompletableFuture<T> await(CompletableFuture<T> shared);
+
+        /**
+         * Runs a write to the outbox, customer cache or deferred queue, which may wait for a lock or disk sync
+         * @return The write's result, or a failed future if it threw or could not be queued
+         */
+        <T> CompletableFuture<T> persist(Supplier<T> write);
+    }
+
+    // Runs every call on the calling thread with the pooled blocking client
+    private final Exchange blockingExchange = new Exchange() {
+        @Override
+        public CompletableFuture<String> execute(StripeRequest request) {
+            for (int attempt = 0; ; attempt++) {
+                if (!circuitBreaker.tryAcquire()) {
+                    return CompletableFuture.failedFuture(unavailable(request));
+                }
+                rateLimiter.acquire().join();
+                long started = System.nanoTime();
+                try {
+                    String responseBody = StripeInvoiceService.this.execute(request);
+                    release(null, attempt);
+                    requestHedger.recordLatency(request.endpointName(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    return CompletableFuture.completedFuture(responseBody);
+                } catch (Exception e) {
+                    release(e, attempt);
+                    if (!shouldRetry(e, request, attempt)) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<T> await(CompletableFuture<T> shared) {
+            // Block here, so the owner's thread does not go on to run this caller's later steps
+            try {
+                return CompletableFuture.completedFuture(shared.join());
+            } catch (CompletionException e) {
+                return CompletableFuture.failedFuture(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<T> persist(Supplier<T> write) {
+            // The calling thread may block, write right here
             try {
-                ObjectNode sendData = objectMapper.createObjectNode();
-                logger.info("Sending invoice email to customer for invoice: {}", invoiceId);
+                return CompletableFuture.completedFuture(write.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    };
+
+    // Runs every call on the non-blocking client, continuations run on its I/O reactor threads
+    // and writes are handed to the persistence executor. Only this exchange hedges, the
+    // blocking one has no spare thread to send a duplicate from
+    private final Exchange asyncExchange = new Exchange() {
+        @Override
+        public CompletableFuture<String> execute(StripeRequest request) {
+            return executeLimitedAsync(request, 0);
+        }
 
-                String sendResponseBody = callStripeApi("/invoices/" + invoiceId + "/send", sendData);
-                logger.info("Send invoice response: {}", sendResponseBody);
+        @Override
+        public <T> CompletableFuture<T> await(CompletableFuture<T> shared) {
+            return shared;
+        }
 
-                invoice = objectMapper.readValue(sendResponseBody,
-                                            new TypeReference<Map<String, Object>>() {});
-                logger.info("Invoice email sent successfully to customer");
-            } catch (Exception e) {
-                logger.warn("Failed to send invoice email: {}", e.getMessage(), e);
+        @Override
+        public <T> CompletableFuture<T> persist(Supplier<T> write) {
+            try {
+                return CompletableFuture.supplyAsync(write, persistenceExecutor);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
             }
         }
+    };
 
-        return invoice;
+    /**
+     * Call the Stripe API on the non-blocking client once the rate limiter admits it,
+     * hedging slow calls and retrying without holding a thread while a 429 back-off is in force
+     */
+    private CompletableFuture<String> executeLimitedAsync(StripeRequest request, int attempt) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(unavailable(request));
+        }
+        return rateLimiter.acquire()
+                .thenCompose(permit -> requestHedger.hedge(request.endpointName(),
+                        () -> executeReleasing(request, attempt),
+                        raceResult -> executeHedge(request, attempt, raceResult)))
+                .handle((responseBody, error) -> error == null
+                        ? CompletableFuture.completedFuture(responseBody)
+                        : shouldRetry(error, request, attempt)
+                                ? executeLimitedAsync(request, attempt + 1)
+                                : CompletableFuture.<String>failedFuture(unwrap(error)))
+                .thenCompose(result -> result);
     }
 
     /**
-     * Call the Stripe API
+     * Sends the duplicate of a slow call once the rate limiter admits it. If the
+     * original answered while the duplicate waited, the permit is handed back unused.
+     * The duplicate also needs the circuit breaker's permission, like any other call.
      */
-    private String callStripeApi(String endpoint, ObjectNode data) throws Exception {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(apiUrl + endpoint);
+    private CompletableFuture<String> executeHedge(StripeRequest request, int attempt,
+                                                   CompletableFuture<String> raceResult) {
+        CompletableFuture<Void> hedgePermit = rateLimiter.acquire();
+        // Stop queueing for a permit once the race is decided, the limiter skips cancelled waiters
+        raceResult.whenComplete((responseBody, error) -> hedgePermit.cancel(false));
+        return hedgePermit.thenCompose(permit -> {
+            if (raceResult.isDone()) {
+                rateLimiter.onFailure();
+                return CompletableFuture.failedFuture(
+                        new CancellationException("Hedge of " + request.endpointName() + " no longer needed"));
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                rateLimiter.onFailure();
+                return CompletableFuture.failedFuture(unavailable(request));
+            }
+            return executeReleasing(request, attempt);
+        });
+    }
 
-            // Set headers
-            request.setHeader("Authorization", "Bearer " + apiKey);
-            request.setHeader("Content-Type", "application/x-www-form-urlencoded");
+    /**
+     * Sends an admitted call on the non-blocking client and hands its permit back when it ends
+     */
+    private CompletableFuture<String> executeReleasing(StripeRequest request, int attempt) {
+        return executeAsync(request).whenComplete((responseBody, error) -> release(error, attempt));
+    }
 
-            // Convert ObjectNode to form parameters
-            List<NameValuePair> params = new ArrayList<>();
-            Iterator<Map.Entry<String, com.fasterxml.jackson.databind.JsonNode>> fields = data.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, com.fasterxml.jackson.databind.JsonNode> entry = fields.next();
-                params.add(new BasicNameValuePair(entry.getKey(), entry.getValue().asText()));
-            }
+    /**
+     * Hands the rate limiter permit of a finished call back, reporting how it ended
+     * @param error The failure of the call, or null if it succeeded
+     */
+    private void release(Throwable error, int attempt) {
+        circuitBreaker.onResult(error);
+        Throwable cause = error == null ? null : unwrap(error);
+        if (cause == null) {
+            rateLimiter.onSuccess();
+        } else if (cause instanceof StripeApiException && ((StripeApiException) cause).isRateLimited()) {
+            rateLimiter.onRateLimited(((StripeApiException) cause).getRetryAfterMillis(), attempt);
+        } else {
+            rateLimiter.onFailure();
+        }
+    }
 
-            // Set request body as URL-encoded form parameters
-            request.setEntity(new UrlEncodedFormEntity(params));
+    /**
+     * @return true if the call was rate limited and has retries left, the limiter holds it back until the back-off ends
+     */
+    private boolean shouldRetry(Throwable error, StripeRequest request, int attempt) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof StripeApiException) || !((StripeApiException) cause).isRateLimited()) {
+            return false;
+        }
+        if (attempt >= maxRateLimitRetries) {
+            logger.warn("Stripe still rate limiting {} after {} retries, giving up", request.getUri().getPath(), attempt);
+            return false;
+        }
+        logger.warn("Stripe rate limited {}, retrying (retry {} of {})",
+                request.getUri().getPath(), attempt + 1, maxRateLimitRetries);
+        return true;
+    }
 
-            // Improved detailed logging
-            StringBuilder paramsLog = new StringBuilder();
-            for (NameValuePair param : params) {
-                paramsLog.append(param.getName()).append("=").append(param.getValue()).append(", ");
-            }
-            logger.info("Calling Stripe API: {} with data: {}", endpoint, paramsLog.toString());
+    private static StripeUnavailableException unavailable(StripeRequest request) {
+        return new StripeUnavailableException("Stripe circuit breaker open, not calling " + request.getUri().getPath());
+    }
 
-            // Execute request
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                int statusCode = response.getStatusLine().getStatusCode();
-                String responseBody = EntityUtils.toString(response.getEntity());
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
-                logger.info("Stripe API response status: {}", statusCode);
-                logger.info("Stripe API response body: {}", responseBody);
+    /**
+     * Call the Stripe API on the calling thread
+     */
+    private String execute(StripeRequest request) throws Exception {
+        StripeResponse response = transport.send(request);
+        return checkResponse(request, response);
+    }
 
-                if (statusCode >= 200 && statusCode < 300) {
-                    return responseBody;
-                } else {
-                    throw new Exception("Stripe API error (status " + statusCode + "): " + responseBody);
-                }
+    /**
+     * Call the Stripe API without blocking. The future completes on a transport
+     * thread, so callers must not block in their continuations.
+     */
+    private CompletableFuture<String> executeAsync(StripeRequest request) {
+        return transport.sendAsync(request).thenApply(response -> {
+            try {
+                return checkResponse(request, response);
+            } catch (StripeApiException e) {
+                throw new CompletionException(e);
             }
+        });
+    }
+
+    /**
+     * Builds the form-encoded POST request for a Stripe API call. The body is encoded
+     * once here, retries and hedges send the same bytes again.
+     * @param idempotencyKey Sent as the Idempotency-Key header so a repeated call is not applied twice
+     */
+    private StripeRequest buildRequest(String endpoint, ObjectNode data, String idempotencyKey) {
+        // Convert ObjectNode to form parameters
+        List<NameValuePair> params = new ArrayList<>();
+        Iterator<Map.Entry<String, com.fasterxml.jackson.databind.JsonNode>> fields = data.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, com.fasterxml.jackson.databind.JsonNode> entry = fields.next();
+            params.add(new BasicNameValuePair(entry.getKey(), entry.getValue().asText()));
+        }
+
+        // The body itself is only logged by the payload logger, sampled and redacted
+        logger.debug("Calling Stripe API: {}", endpoint);
+
+        return StripeRequest.post(URI.create(apiUrl + endpoint), authorization(),
+                URLEncodedUtils.format(params, StandardCharsets.UTF_8), idempotencyKey);
+    }
+
+    /**
+     * Builds a GET request for a Stripe list endpoint
+     */
+    private StripeRequest buildGetRequest(String endpoint, List<NameValuePair> query) throws Exception {
+        logger.debug("Querying Stripe API: {}", endpoint);
+        return StripeRequest.get(new URIBuilder(apiUrl + endpoint).addParameters(query).build(), authorization());
+    }
+
+    private String authorization() {
+        return "Bearer " + apiKey;
+    }
+
+    /**
+     * Returns the body of a successful response, or throws for any non-2xx status
+     */
+    private String checkResponse(StripeRequest request, StripeResponse response) throws StripeApiException {
+        int statusCode = response.getStatusCode();
+        String responseBody = response.getBody();
+        logger.debug("Stripe API response status: {}", statusCode);
+        payloadLogger.log(request, statusCode, responseBody);
+
+        if (statusCode >= 200 && statusCode < 300) {
+            return responseBody;
+        } else {
+            throw new StripeApiException(statusCode, responseBody, readRetryAfter(response));
+        }
+    }
+
+    /**
+     * @return The delay a Retry-After header asks for in milliseconds, or -1 if there is none
+     */
+    private static long readRetryAfter(StripeResponse response) {
+        String retryAfter = response.getRetryAfter();
+        if (retryAfter == null) {
+            return -1;
         }
+        try {
+            // Stripe sends delay-seconds, the HTTP-date form is left to the default back-off
+            return Math.max(0, Math.round(Double.parseDouble(retryAfter.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return Size, hit and miss counters of the email to customer ID cache, and how
+     *         many lookups were served by joining one already in flight
+     */
+    public Map<String, Long> getCustomerCacheStats() {
+        Map<String, Long> stats = customerCache.getStats();
+        stats.put("coalescedLookups", coalescedCustomerLookups.sum());
+        return stats;
+    }
+
+    /**
+     * @return Tokens, adaptive in-flight limit and 429 counters of the rate limiter
+     */
+    public Map<String, Number> getRateLimiterStats() {
+        return rateLimiter.getStats();
+    }
+
+    /**
+     * @return Hedges fired and won, and recent latency percentiles of each Stripe endpoint
+     */
+    public Map<String, Object> getHedgingStats() {
+        return requestHedger.getStats();
+    }
+
+    /**
+     * @return Payload logging settings and bytes logged in total and per invoice
+     */
+    public Map<String, Object> getPayloadLoggingStats() {
+        return payloadLogger.getStats();
+    }
+
+    /**
+     * @return State of the circuit breaker and how often it opened or rejected a call
+     */
+    public Map<String, Object> getCircuitBreakerStats() {
+        return circuitBreaker.getStats();
+    }
+
+    /**
+     * @return Record, incomplete and resumed counters of the invoice outbox
+     */
+    public Map<String, Long> getOutboxStats() {
+        return invoiceOutbox.getStats();
+    }
+
+    /**
+     * @return Which HTTP client Stripe calls use, and its connection figures
+     */
+    public Map<String, Object> getTransportStats() {
+        return transport.getStats();
     }
 
     /**
@@ -0,0 +1,145 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Request and response body logging for Stripe calls.
+ *
+ * Capture is off by default. When enabled, only a sample of calls is logged, as
+ * one line per call holding the request and the response. Values of customer
+ * fields (email, name, phone, address) are redacted and each payload is cut to
+ * the configured length. Nothing is read or built for calls that are not logged.
+ * The number of characters logged is counted per invoice so the cost of a
+ * sampling rate can be checked on /stripe/metrics.
+ */
+@Component
+public class StripePayloadLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripePayloadLogger.class);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int maxChars;
+    // Matches "field":"value" in JSON and field=value in form bodies for every redacted field
+    private final Pattern jsonFields;
+    private final Pattern formFields;
+
+    private final LongAdder callsLogged = new LongAdder();
+    private final LongAdder charsLogged = new LongAdder();
+    private final LongAdder invoices = new LongAdder();
+
+    /**
+     * @param enabled      Whether request and response bodies are logged at all
+     * @param sampleRate   Fraction of calls logged when enabled, 0.0 to 1.0
+     * @param maxChars     Maximum length of each logged payload
+     * @param redactFields Field names whose values are replaced before logging
+     */
+    public StripePayloadLogger(@Value("${stripe.logging.payloads:false}") boolean enabled,
+                               @Value("${stripe.logging.sample-rate:0.01}") double sampleRate,
+                               @Value("${stripe.logging.max-chars:1024}") int maxChars,
+                               @Value("${stripe.logging.redact-fields:email,name,phone,customer_email,customer_name,customer_phone,line1,line2,postal_code,city}")
+                               String[] redactFields) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.maxChars = maxChars;
+
+        String names = Arrays.stream(redactFields)
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .map(Pattern::quote)
+                .reduce((a, b) -> a + "|" + b)
+                .orElse("(?!)");
+        this.jsonFields = Pattern.compile("(\"(?:" + names + ")\"\\s*:\\s*)\"(?:[^\"\\\\]|\\\\.)*\"");
+        this.formFields = Pattern.compile("((?:^|&)(?:" + names + ")=)[^&]*");
+
+        if (enabled) {
+            logger.info("Logging {}% of Stripe request/response payloads, redacted and cut to {} chars",
+                    sampleRate * 100, maxChars);
+        }
+    }
+
+    /**
+     * Counts an invoice run, the denominator of the per-invoice logging cost
+     */
+    public void onInvoice() {
+        invoices.increment();
+    }
+
+    /**
+     * Logs a sampled call's request and response bodies
+     * @param request      The request that was sent
+     * @param statusCode   Status of Stripe's response
+     * @param responseBody Body of Stripe's response
+     */
+    public void log(StripeRequest request, int statusCode, String responseBody) {
+        if (!enabled || !logger.isInfoEnabled() || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        String requestPayload = truncate(redactForm(request.describeParameters()));
+        String responsePayload = truncate(redactJson(responseBody));
+        callsLogged.increment();
+        charsLogged.add(requestPayload.length() + responsePayload.length());
+        logger.info("Stripe {} {} -> {}\n  request: {}\n  response: {}",
+                request.getMethod(), request.getUri().getPath(), statusCode, requestPayload, responsePayload);
+    }
+
+    /**
+     * @return Sampling settings and how much payload was logged, in total and per invoice
+     */
+    public Map<String, Object> getStats() {
+        long invoiceCount = invoices.sum();
+        long chars = charsLogged.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("payloads", enabled);
+        stats.put("sampleRate", sampleRate);
+        stats.put("callsLogged", callsLogged.sum());
+        stats.put("bytesLogged", chars);
+        stats.put("bytesPerInvoice", invoiceCount == 0 ? 0 : chars / invoiceCount);
+        return stats;
+    }
+
+    /**
+     * @return An email with all but its first character and domain masked, for ordinary log lines
+     */
+    static String maskEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.indexOf('@');
+        return at <= 0 ? "***" : email.charAt(0) + "***" + email.substring(at);
+    }
+
+    /**
+     * @return The JSON with the string value of every redacted field replaced
+     */
+    String redactJson(String json) {
+        return json == null ? "" : jsonFields.matcher(json).replaceAll("$1\"[REDACTED]\"");
+    }
+
+    /**
+     * @return The form body or query string with the value of every redacted field replaced
+     */
+    String redactForm(String form) {
+        Matcher matcher = formFields.matcher(form);
+        return matcher.replaceAll("$1[REDACTED]");
+    }
+
+    private String truncate(String payload) {
+        if (payload.length() <= maxChars) {
+            return payload;
+        }
+        return payload.substring(0, maxChars) + "...(" + (payload.length() - maxChars) + " more chars)";
+    }
+}
@@ -0,0 +1,243 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for Stripe API calls.
+ *
+ * A call needs both a token from a token bucket, refilled at the configured
+ * requests per second, and one of a limited number of in-flight slots. The slot
+ * limit adapts AIMD-style: it grows by 1/limit on every successful call and is
+ * halved when Stripe answers 429, at most once per back-off window. A 429 also
+ * pauses all admissions until its Retry-After has passed, so callers back off
+ * together instead of each retrying into the limit.
+ *
+ * Waiting callers get a future, which is completed from a single scheduler
+ * thread, so non-blocking callers never park a thread while they queue.
+ */
+@Component
+public class StripeRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeRateLimiter.class);
+
+    private final double tokensPerMilli;
+    private final double burst;
+    private final double minConcurrency;
+    private final double maxConcurrency;
+    private final long baseBackoffMillis;
+
+    private final ScheduledExecutorService scheduler;
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    // Guarded by this
+    private double tokens;
+    private long lastRefill;
+    private double concurrencyLimit;
+    private int inFlight;
+    private long pausedUntil;
+    private long lastDecrease;
+    private boolean drainScheduled;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    /**
+     * @param requestsPerSecond  Sustained call rate allowed by the Stripe account
+     * @param burst              Calls that may be made back to back after an idle period
+     * @param initialConcurrency Starting number of calls allowed in flight at once
+     * @param minConcurrency     Lowest the in-flight limit shrinks to under rate limiting
+     * @param maxConcurrency     Highest the in-flight limit grows to
+     * @param baseBackoffMillis  First back-off delay when a 429 carries no Retry-After, doubled per attempt
+     */
+    public StripeRateLimiter(@Value("${stripe.rate-limit.requests-per-second:25}") double requestsPerSecond,
+                             @Value("${stripe.rate-limit.burst:25}") int burst,
+                             @Value("${stripe.rate-limit.initial-concurrency:8}") int initialConcurrency,
+                             @Value("${stripe.rate-limit.min-concurrency:1}") int minConcurrency,
+                             @Value("${stripe.rate-limit.max-concurrency:32}") int maxConcurrency,
+                             @Value("${stripe.rate-limit.base-backoff-ms:500}") long baseBackoffMillis) {
+        if (requestsPerSecond <= 0 || burst < 1 || minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("Invalid Stripe rate limit settings");
+        }
+        this.tokensPerMilli = requestsPerSecond / 1000.0;
+        this.burst = burst;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.tokens = burst;
+        this.lastRefill = System.currentTimeMillis();
+        this.concurrencyLimit = Math.max(minConcurrency, Math.min(maxConcurrency, initialConcurrency));
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stripe-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Requests permission to make one Stripe call. Every completed permit must be
+     * handed back with exactly one of onSuccess, onFailure or onRateLimited.
+     * @return A future that completes once the call may be sent
+     */
+    public CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        synchronized (this) {
+            waiters.addLast(permit);
+        }
+        drain();
+        return permit;
+    }
+
+    /**
+     * Releases the slot of a successful call and grows the in-flight limit
+     */
+    public void onSuccess() {
+        synchronized (this) {
+            inFlight--;
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+        }
+        drain();
+    }
+
+    /**
+     * Releases the slot of a call that failed for a reason other than rate limiting
+     */
+    public void onFailure() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    /**
+     * Releases the slot of a call rejected with 429, shrinks the in-flight limit and
+     * pauses admissions until the back-off has passed
+     * @param retryAfterMillis Delay from the Retry-After header, or -1 if none was sent
+     * @param attempt          Number of earlier attempts of this call
+     * @return The back-off applied, a retry only needs to acquire again as admissions stay paused until then
+     */
+    public long onRateLimited(long retryAfterMillis, int attempt) {
+        rateLimited.increment();
+        long delay = retryAfterMillis >= 0
+                ? retryAfterMillis
+                : (baseBackoffMillis << Math.min(attempt, 10)) + ThreadLocalRandom.current().nextLong(baseBackoffMillis + 1);
+
+        synchronized (this) {
+            inFlight--;
+            long now = System.currentTimeMillis();
+            // Many calls in flight see the same 429 burst, only shrink once for it
+            if (now - lastDecrease >= delay) {
+                concurrencyLimit = Math.max(minConcurrency, concurrencyLimit / 2);
+                lastDecrease = now;
+                logger.warn("Stripe rate limit hit, in-flight limit reduced to {}, pausing for {} ms",
+                        (int) concurrencyLimit, delay);
+            }
+            pausedUntil = Math.max(pausedUntil, now + delay);
+        }
+        drain();
+        return delay;
+    }
+
+    /**
+     * @return Current tokens, in-flight limit and usage, queue length and counters
+     */
+    public synchronized Map<String, Number> getStats() {
+        refill(System.currentTimeMillis());
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("tokens", (int) tokens);
+        stats.put("concurrencyLimit", (int) concurrencyLimit);
+        stats.put("inFlight", inFlight);
+        stats.put("waiting", waiters.size());
+        stats.put("admitted", admitted.sum());
+        stats.put("rateLimited", rateLimited.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Admits as many waiting callers as tokens, slots and any pause allow, and
+     * schedules another pass for when the next one can be admitted
+     */
+    private void drain() {
+        List<CompletableFuture<Void>> admittedNow = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            refill(now);
+            while (!waiters.isEmpty() && now >= pausedUntil && inFlight < (int) concurrencyLimit && tokens >= 1) {
+                CompletableFuture<Void> permit = waiters.pollFirst();
+                if (permit.isDone()) {
+                    continue;
+                }
+                tokens -= 1;
+                inFlight++;
+                admittedNow.add(permit);
+            }
+
+            if (!waiters.isEmpty() && !drainScheduled) {
+                long wait;
+                if (now < pausedUntil) {
+                    wait = pausedUntil - now;
+                } else if (tokens < 1) {
+                    wait = (long) Math.ceil((1 - tokens) / tokensPerMilli);
+                } else {
+                    // Waiting for a slot, a release will drain again
+                    wait = -1;
+                }
+                if (wait >= 0) {
+                    drainScheduled = true;
+                    scheduler.schedule(() -> {
+                        synchronized (this) {
+                            drainScheduled = false;
+                        }
+                        drain();
+                    }, Math.max(1, wait), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        // Complete outside the lock, dependents may start their call straight away
+        int unused = 0;
+        for (CompletableFuture<Void> permit : admittedNow) {
+            if (permit.complete(null)) {
+                admitted.increment();
+            } else {
+                // Cancelled between admission and completion, nobody will release it
+                unused++;
+            }
+        }
+        if (unused > 0) {
+            synchronized (this) {
+                tokens = Math.min(burst, tokens + unused);
+                inFlight -= unused;
+            }
+            drain();
+        }
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.camunda.getstarted.repairShop.service;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One Stripe API call, independent of the HTTP client that sends it.
+ *
+ * The form body is encoded once when the request is built and is never modified
+ * afterwards, so the same request can be sent again on retry, or in parallel as
+ * a hedge, by any StripeTransport.
+ */
+public final class StripeRequest {
+
+    private final String method;
+    private final URI uri;
+    private final String authorization;
+    private final String idempotencyKey;
+    // application/x-www-form-urlencoded body of a POST, null for a GET
+    private final byte[] formBody;
+
+    private StripeRequest(String method, URI uri, String authorization, String idempotencyKey, byte[] formBody) {
+        this.method = method;
+        this.uri = uri;
+        this.authorization = authorization;
+        this.idempotencyKey = idempotencyKey;
+        this.formBody = formBody;
+    }
+
+    public static StripeRequest get(URI uri, String authorization) {
+        return new StripeRequest("GET", uri, authorization, null, null);
+    }
+
+    public static StripeRequest post(URI uri, String authorization, String formBody, String idempotencyKey) {
+        return new StripeRequest("POST", uri, authorization, idempotencyKey, formBody.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public String getAuthorization() {
+        return authorization;
+    }
+
+    /**
+     * @return The Idempotency-Key header value, or null if the call has none
+     */
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    /**
+     * @return The encoded form body, or null for a GET. Shared, must not be modified.
+     */
+    public byte[] getFormBody() {
+        return formBody;
+    }
+
+    /**
+     * @return The form body of a POST or the query string of a GET, for logging
+     */
+    public String describeParameters() {
+        if (formBody != null) {
+            return new String(formBody, StandardCharsets.UTF_8);
+        }
+        String query = uri.getRawQuery();
+        return query == null ? "" : query;
+    }
+
+    /**
+     * @return Method and path with Stripe object IDs replaced, e.g. "POST /v1/invoices/{id}/finalize"
+     */
+    public String endpointName() {
+        StringBuilder endpoint = new StringBuilder(method).append(' ');
+        for (String segment : uri.getPath().split("/")) {
+            if (!segment.isEmpty()) {
+                // Stripe IDs look like in_1Nv0..., cus_Ox3...
+                endpoint.append('/').append(segment.matches("[a-z]+_[A-Za-z0-9]+") ? "{id}" : segment);
+            }
+        }
+        return endpoint.toString();
+    }
+}
@@ -0,0 +1,257 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tail latency hedging for Stripe calls.
+ *
+ * The latency of recent successful calls is kept per endpoint in a fixed-size
+ * window. When hedging is enabled and a call has not answered within the
+ * configured percentile of its endpoint's window, a duplicate is sent and the
+ * first successful answer is used. Duplicates are only safe because every POST
+ * carries an Idempotency-Key, so Stripe applies it once and replays the result
+ * (or rejects the copy while the original is still running, in which case the
+ * original's answer is awaited).
+ */
+@Component
+public class StripeRequestHedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeRequestHedger.class);
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final int windowSize;
+    private final int minSamples;
+
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder hedgesFired = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+
+    /**
+     * @param enabled        Whether slow calls are hedged, latency is tracked either way
+     * @param percentile     Latency percentile of an endpoint after which a call is hedged, e.g. 95
+     * @param minDelayMillis Lower bound of the hedge delay, so fast endpoints are not doubled up on noise
+     * @param windowSize     Number of recent latencies kept per endpoint
+     * @param minSamples     Latencies an endpoint needs before its calls are hedged
+     */
+    public StripeRequestHedger(@Value("${stripe.hedging.enabled:false}") boolean enabled,
+                               @Value("${stripe.hedging.percentile:95}") double percentile,
+                               @Value("${stripe.hedging.min-delay-ms:50}") long minDelayMillis,
+                               @Value("${stripe.hedging.window-size:512}") int windowSize,
+                               @Value("${stripe.hedging.min-samples:20}") int minSamples) {
+        if (percentile <= 0 || percentile > 100 || windowSize < 1) {
+            throw new IllegalArgumentException("Invalid Stripe hedging settings");
+        }
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.windowSize = windowSize;
+        this.minSamples = Math.min(minSamples, windowSize);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stripe-hedging");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            logger.info("Hedging Stripe calls slower than p{} of their endpoint (at least {} ms)", percentile, minDelayMillis);
+        }
+    }
+
+    /**
+     * Runs a call, and a duplicate of it if the first is slower than the endpoint's hedge delay
+     * @param endpoint Endpoint the call belongs to, latencies are tracked per endpoint
+     * @param call     Sends the original call
+     * @param hedge    Sends a duplicate of the call. Gets the race's result, so a duplicate that
+     *                 has to wait before it can be sent can give up once the race is decided.
+     * @return The first successful answer, or the original call's failure if both fail
+     */
+    public <T> CompletableFuture<T> hedge(String endpoint, Supplier<CompletableFuture<T>> call,
+                                          Function<CompletableFuture<T>, CompletableFuture<T>> hedge) {
+        long started = System.nanoTime();
+        CompletableFuture<T> primary = call.get();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                recordLatency(endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        });
+
+        long delay = enabled ? hedgeDelay(endpoint) : -1;
+        if (delay < 0 || primary.isDone()) {
+            return primary;
+        }
+
+        Race<T> race = new Race<>();
+        primary.whenComplete((result, error) -> race.onAnswer(result, error, false));
+        race.timer = scheduler.schedule(() -> {
+            if (race.startHedge()) {
+                hedgesFired.increment();
+                logger.info("Stripe call to {} slower than {} ms, sending hedged request", endpoint, delay);
+                CompletableFuture<T> duplicate;
+                try {
+                    duplicate = hedge.apply(race.result);
+                } catch (RuntimeException e) {
+                    duplicate = CompletableFuture.failedFuture(e);
+                }
+                duplicate.whenComplete((result, error) -> race.onAnswer(result, error, true));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        return race.result;
+    }
+
+    /**
+     * Adds the latency of a successful call to its endpoint's window
+     */
+    public void recordLatency(String endpoint, long millis) {
+        windows.computeIfAbsent(endpoint, e -> new LatencyWindow(windowSize)).add(millis);
+    }
+
+    /**
+     * @return How long a call to the endpoint may run before it is hedged, or -1 if there are too few samples
+     */
+    long hedgeDelay(String endpoint) {
+        LatencyWindow window = windows.get(endpoint);
+        if (window == null) {
+            return -1;
+        }
+        long[] sorted = window.sorted();
+        if (sorted.length < minSamples) {
+            return -1;
+        }
+        return Math.max(minDelayMillis, percentileOf(sorted, percentile));
+    }
+
+    /**
+     * @return Hedge counters and p50/p95/p99 latency of every tracked endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hedgesFired", hedgesFired.sum());
+        stats.put("hedgesWon", hedgesWon.sum());
+
+        Map<String, Map<String, Long>> latency = new LinkedHashMap<>();
+        windows.forEach((endpoint, window) -> {
+            long[] sorted = window.sorted();
+            if (sorted.length > 0) {
+                Map<String, Long> endpointStats = new LinkedHashMap<>();
+                endpointStats.put("samples", (long) sorted.length);
+                endpointStats.put("p50", percentileOf(sorted, 50));
+                endpointStats.put("p95", percentileOf(sorted, 95));
+                endpointStats.put("p99", percentileOf(sorted, 99));
+                latency.put(endpoint, endpointStats);
+            }
+        });
+        stats.put("latencyMs", latency);
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static long percentileOf(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Ring buffer of the most recent latencies of one endpoint
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Outcome of an original call and its possible duplicate. Completes with the first
+     * success; a failure only counts once no other answer can still arrive.
+     */
+    private final class Race<T> {
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        volatile ScheduledFuture<?> timer;
+
+        private boolean hedgeStarted;
+        private int outstanding = 1;
+        private Throwable primaryError;
+        private Throwable hedgeError;
+
+        synchronized boolean startHedge() {
+            if (result.isDone()) {
+                return false;
+            }
+            hedgeStarted = true;
+            outstanding++;
+            return true;
+        }
+
+        void onAnswer(T answer, Throwable error, boolean fromHedge) {
+            synchronized (this) {
+                if (result.isDone()) {
+                    return;
+                }
+                if (error == null) {
+                    if (fromHedge) {
+                        hedgesWon.increment();
+                    }
+                    result.complete(answer);
+                } else {
+                    outstanding--;
+                    if (fromHedge) {
+                        hedgeError = error;
+                    } else {
+                        primaryError = error;
+                    }
+                    // A failed original is not hedged, the caller decides whether to retry it
+                    if (outstanding == 0 || !hedgeStarted) {
+                        result.completeExceptionally(primaryError != null ? primaryError : hedgeError);
+                    }
+                }
+            }
+            ScheduledFuture<?> pending = timer;
+            if (result.isDone() && pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.camunda.getstarted.repairShop.service;
+
+/**
+ * Status, body and the headers the invoice pipeline reads from a Stripe response.
+ */
+public final class StripeResponse {
+
+    private final int statusCode;
+    private final String body;
+    // Raw Retry-After header, null if absent
+    private final String retryAfter;
+
+    public StripeResponse(int statusCode, String body, String retryAfter) {
+        this.statusCode = statusCode;
+        this.body = body;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+}
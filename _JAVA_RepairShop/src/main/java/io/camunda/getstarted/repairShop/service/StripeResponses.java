@@ -0,0 +1,71 @@
+package io.camunda.getstarted.repairShop.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * The parts of Stripe API responses the invoice pipeline reads.
+ *
+ * Each type declares only the fields that are used and ignores the rest, so
+ * Jackson skips over the bulk of an invoice object (lines, tax, customer address,
+ * status transitions...) while parsing instead of building a map for all of it.
+ */
+public final class StripeResponses {
+
+    private StripeResponses() {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Customer {
+        public String id;
+    }
+
+    /**
+     * Response of GET /customers
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class CustomerList {
+        public List<Customer> data;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class InvoiceItem {
+        public String id;
+        public Long amount;
+    }
+
+    /**
+     * Body of an error response
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ErrorResponse {
+        public ApiError error;
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public static class ApiError {
+            public String code;
+            public String param;
+            public String message;
+        }
+    }
+
+    /**
+     * Invoice as returned by the create, finalize and send endpoints. Also kept in the
+     * invoice outbox, so absent fields are left out of the stored JSON.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Invoice {
+        public String id;
+        public String status;
+        @JsonProperty("amount_due")
+        public Long amountDue;
+        @JsonProperty("hosted_invoice_url")
+        public String hostedInvoiceUrl;
+        @JsonProperty("invoice_pdf")
+        public String invoicePdf;
+    }
+}
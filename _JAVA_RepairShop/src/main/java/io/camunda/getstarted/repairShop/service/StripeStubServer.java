@@ -0,0 +1,399 @@
+package io.camunda.getstarted.repairShop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the parts of the Stripe API the invoice pipeline calls, for
+ * load testing StripeInvoiceService over real HTTP without touching Stripe.
+ *
+ * Only started when stripe.stub.enabled is set; point stripe.api.url at
+ * http://localhost:{port}/v1 to use it. Implements customer search and create,
+ * invoice items, invoices, finalize and send, keeping objects in memory, and
+ * replays responses for a repeated Idempotency-Key like Stripe does (answering
+ * 409 while the first request with that key is still running). Every response
+ * waits for the configured latency, with an optional slow tail, and a share of
+ * requests can fail with 500 or be rejected with 429 and Retry-After, either at
+ * random or above a requests-per-second limit.
+ */
+@Component
+@ConditionalOnProperty(name = "stripe.stub.enabled", havingValue = "true")
+public class StripeStubServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeStubServer.class);
+    private static final String IN_PROGRESS = "";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    @Value("${stripe.stub.latency-ms:50}")
+    private long latencyMillis;
+
+    @Value("${stripe.stub.latency-jitter-ms:20}")
+    private long latencyJitterMillis;
+
+    // Share of requests that take slow-latency-ms instead, to give the latency a tail
+    @Value("${stripe.stub.slow-rate:0.0}")
+    private double slowRate;
+
+    @Value("${stripe.stub.slow-latency-ms:2000}")
+    private long slowLatencyMillis;
+
+    // Share of requests answered with 500
+    @Value("${stripe.stub.error-rate:0.0}")
+    private double errorRate;
+
+    // Share of requests answered with 429, on top of the requests-per-second limit
+    @Value("${stripe.stub.rate-limited-rate:0.0}")
+    private double rateLimitedRate;
+
+    // Requests per second accepted before answering 429, 0 for no limit
+    @Value("${stripe.stub.requests-per-second:0}")
+    private int requestsPerSecond;
+
+    @Value("${stripe.stub.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    // Stripe objects by ID, each held as its JSON representation
+    private final Map<String, ObjectNode> customers = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> invoices = new ConcurrentHashMap<>();
+    // Customer ID -> invoice items not yet on an invoice, guarded by itself
+    private final Map<String, List<ObjectNode>> pendingItems = new HashMap<>();
+    // Idempotency-Key -> response body, IN_PROGRESS while the first request runs
+    private final Map<String, String> idempotentResponses = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong();
+    private final LongAdder windowRequests = new LongAdder();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    // Client address and port of every connection a request arrived on
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param port    Port to listen on, 0 for any free port
+     * @param threads Requests handled at once, latency is simulated by blocking one of these
+     */
+    public StripeStubServer(@Value("${stripe.stub.port:12111}") int port,
+                            @Value("${stripe.stub.threads:64}") int threads) throws IOException {
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stripe-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.server.createContext("/v1/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    @PostConstruct
+    public void start() {
+        server.start();
+        logger.warn("Stripe stub server listening on http://localhost:{}/v1 - point stripe.api.url here for load tests only",
+                getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            connections.add(exchange.getRemoteAddress());
+            simulateLatency();
+
+            if (overRateLimit() || ThreadLocalRandom.current().nextDouble() < rateLimitedRate) {
+                rateLimited.increment();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+                respond(exchange, 429, error("rate_limit_error", "Too many requests made to the API too quickly"));
+                return;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                respond(exchange, 500, error("api_error", "Injected stub failure"));
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath().substring("/v1".length());
+            String key = "POST".equals(method) ? exchange.getRequestHeaders().getFirst("Idempotency-Key") : null;
+            if (key != null) {
+                String previous = idempotentResponses.putIfAbsent(key, IN_PROGRESS);
+                if (IN_PROGRESS.equals(previous)) {
+                    respond(exchange, 409, error("idempotency_error",
+                            "There is currently another in-progress request using this Idempotent Key"));
+                    return;
+                } else if (previous != null) {
+                    replayed.increment();
+                    exchange.getResponseHeaders().add("Idempotent-Replayed", "true");
+                    respond(exchange, 200, previous);
+                    return;
+                }
+            }
+
+            String body;
+            try {
+                body = route(method, path, exchange);
+            } catch (IOException | RuntimeException e) {
+                if (key != null) {
+                    idempotentResponses.remove(key);
+                }
+                throw e;
+            }
+            if (body == null) {
+                if (key != null) {
+                    idempotentResponses.remove(key);
+                }
+                respond(exchange, 404, error("invalid_request_error", "Unrecognized request URL (" + method + ": " + path + ")"));
+                return;
+            }
+            if (key != null) {
+                idempotentResponses.put(key, body);
+            }
+            respond(exchange, 200, body);
+        } catch (RuntimeException e) {
+            logger.warn("Stripe stub failed to handle {}", exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return The response body for a supported endpoint, or null if there is none
+     */
+    private String route(String method, String path, HttpExchange exchange) throws IOException {
+        String[] segments = path.split("/");
+        if ("GET".equals(method) && path.equals("/customers")) {
+            return searchCustomers(exchange.getRequestURI().getRawQuery());
+        }
+        if (!"POST".equals(method)) {
+            return null;
+        }
+
+        Map<String, String> form = readForm(exchange.getRequestBody());
+        if (path.equals("/customers")) {
+            return createCustomer(form);
+        } else if (path.equals("/invoiceitems")) {
+            return createInvoiceItem(form);
+        } else if (path.equals("/invoices")) {
+            return createInvoice(form);
+        } else if (segments.length == 4 && segments[1].equals("invoices") && segments[3].equals("finalize")) {
+            return finalizeInvoice(segments[2]);
+        } else if (segments.length == 4 && segments[1].equals("invoices") && segments[3].equals("send")) {
+            return sendInvoice(segments[2]);
+        }
+        return null;
+    }
+
+    private String searchCustomers(String rawQuery) {
+        Map<String, String> query = parseForm(rawQuery == null ? "" : rawQuery);
+        String email = query.get("email");
+        ObjectNode list = objectMapper.createObjectNode();
+        list.put("object", "list");
+        list.put("url", "/v1/customers");
+        list.put("has_more", false);
+        ArrayNode data = list.putArray("data");
+        for (ObjectNode customer : customers.values()) {
+            if (email != null && email.equals(customer.path("email").asText(null))) {
+                data.add(customer);
+                break;
+            }
+        }
+        return list.toString();
+    }
+
+    private String createCustomer(Map<String, String> form) {
+        ObjectNode customer = newObject("cus_", "customer");
+        customer.put("email", form.get("email"));
+        customer.put("name", form.get("name"));
+        customers.put(customer.get("id").asText(), customer);
+        return customer.toString();
+    }
+
+    private String createInvoiceItem(Map<String, String> form) {
+        ObjectNode item = newObject("ii_", "invoiceitem");
+        item.put("customer", form.get("customer"));
+        item.put("description", form.get("description"));
+        item.put("amount", Long.parseLong(form.getOrDefault("amount", "0")));
+        item.put("currency", form.get("currency"));
+        synchronized (pendingItems) {
+            pendingItems.computeIfAbsent(form.get("customer"), c -> new ArrayList<>()).add(item);
+        }
+        return item.toString();
+    }
+
+    private String createInvoice(Map<String, String> form) {
+        String customerId = form.get("customer");
+        ObjectNode invoice = newObject("in_", "invoice");
+        invoice.put("customer", customerId);
+        invoice.put("collection_method", form.get("collection_method"));
+        invoice.put("status", "draft");
+
+        long amountDue = 0;
+        ArrayNode lines = invoice.putObject("lines").put("object", "list").putArray("data");
+        List<ObjectNode> items;
+        synchronized (pendingItems) {
+            items = pendingItems.remove(customerId);
+        }
+        if (items != null && "include".equals(form.get("pending_invoice_items_behavior"))) {
+            for (ObjectNode item : items) {
+                amountDue += item.get("amount").asLong();
+                lines.add(item);
+            }
+        }
+        invoice.put("amount_due", amountDue);
+        invoice.putNull("hosted_invoice_url");
+        invoice.putNull("invoice_pdf");
+        invoices.put(invoice.get("id").asText(), invoice);
+        return invoice.toString();
+    }
+
+    private String finalizeInvoice(String invoiceId) {
+        ObjectNode invoice = invoices.get(invoiceId);
+        if (invoice == null) {
+            return null;
+        }
+        synchronized (invoice) {
+            invoice.put("status", "open");
+            invoice.put("hosted_invoice_url", "http://localhost/stub/invoices/" + invoiceId);
+            invoice.put("invoice_pdf", "http://localhost/stub/invoices/" + invoiceId + "/pdf");
+            return invoice.toString();
+        }
+    }
+
+    private String sendInvoice(String invoiceId) {
+        ObjectNode invoice = invoices.get(invoiceId);
+        if (invoice == null) {
+            return null;
+        }
+        synchronized (invoice) {
+            return invoice.toString();
+        }
+    }
+
+    private ObjectNode newObject(String idPrefix, String type) {
+        ObjectNode object = objectMapper.createObjectNode();
+        object.put("id", idPrefix + "stub" + ids.incrementAndGet());
+        object.put("object", type);
+        object.put("created", System.currentTimeMillis() / 1000);
+        object.put("livemode", false);
+        return object;
+    }
+
+    private void simulateLatency() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = random.nextDouble() < slowRate
+                ? slowLatencyMillis
+                : latencyMillis + (latencyJitterMillis > 0 ? random.nextLong(latencyJitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true if this request goes over the requests-per-second limit of the current one-second window
+     */
+    private boolean overRateLimit() {
+        if (requestsPerSecond <= 0) {
+            return false;
+        }
+        long second = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long current = windowStart.get();
+        if (second != current && windowStart.compareAndSet(current, second)) {
+            windowRequests.reset();
+        }
+        windowRequests.increment();
+        return windowRequests.sum() > requestsPerSecond;
+    }
+
+    private String error(String type, String message) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("error").put("type", type).put("message", message);
+        return body.toString();
+    }
+
+    private Map<String, String> readForm(InputStream body) throws IOException {
+        return parseForm(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parseForm(String encoded) {
+        Map<String, String> values = new HashMap<>();
+        for (NameValuePair pair : URLEncodedUtils.parse(encoded, StandardCharsets.UTF_8)) {
+            values.put(pair.getName(), pair.getValue());
+        }
+        return values;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return The port the server listens on, the bound one when configured with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return Requests served and how many were failed, rate limited or replayed,
+     *         and the number of client connections they arrived on
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.sum());
+        stats.put("errors", errors.sum());
+        stats.put("rateLimited", rateLimited.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("connections", (long) connections.size());
+        stats.put("invoices", (long) invoices.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
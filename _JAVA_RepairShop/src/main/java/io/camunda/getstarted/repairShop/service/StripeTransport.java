@@ -0,0 +1,29 @@
+package io.camunda.getstarted.repairShop.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP client used for Stripe API calls, chosen with stripe.http.transport.
+ * Implementations return every response, whatever its status; checking the
+ * status is left to StripeInvoiceService.
+ */
+public interface StripeTransport {
+
+    /**
+     * Sends a request on the calling thread
+     */
+    StripeResponse send(StripeRequest request) throws IOException;
+
+    /**
+     * Sends a request without blocking the calling thread
+     * @return A future completing on one of the transport's own threads
+     */
+    CompletableFuture<StripeResponse> sendAsync(StripeRequest request);
+
+    /**
+     * @return Connection and usage figures of the transport, for /stripe/metrics
+     */
+    Map<String, Object> getStats();
+}
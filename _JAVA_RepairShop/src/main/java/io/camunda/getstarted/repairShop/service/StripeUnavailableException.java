@@ -0,0 +1,13 @@
+package io.camunda.getstarted.repairShop.service;
+
+/**
+ * Stripe call rejected without being sent, because the circuit breaker is open.
+ */
+public class StripeUnavailableException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public StripeUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class CsvMembershipRepositoryTest extends MembershipRepositoryContractTest {
+
+    @Override
+    MembershipRepository open(Path dir) throws IOException {
+        return new CsvMembershipRepository(dir.resolve("members.csv"), MembershipJournal.Durability.BATCH, 10, 64);
+    }
+}
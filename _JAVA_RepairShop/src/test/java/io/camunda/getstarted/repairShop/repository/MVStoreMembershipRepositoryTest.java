@@ -0,0 +1,12 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class MVStoreMembershipRepositoryTest extends MembershipRepositoryContractTest {
+
+    @Override
+    MembershipRepository open(Path dir) throws IOException {
+        return new MVStoreMembershipRepository(dir.resolve("members.mv.db"), false);
+    }
+}
@@ -0,0 +1,12 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class MappedMembershipRepositoryTest extends MembershipRepositoryContractTest {
+
+    @Override
+    MembershipRepository open(Path dir) throws IOException {
+        return new MappedMembershipRepository(dir.resolve("members.dat"), false);
+    }
+}
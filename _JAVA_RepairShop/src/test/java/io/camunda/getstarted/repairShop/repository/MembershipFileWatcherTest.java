@@ -0,0 +1,119 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import io.camunda.getstarted.repairShop.service.MembershipIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MembershipFileWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private MembershipFileWatcher watcher;
+
+    // What the listener was told, the way MembershipCheckService feeds its index
+    private final MembershipIndex index = new MembershipIndex();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final AtomicInteger reloads = new AtomicInteger();
+
+    @BeforeEach
+    void startWatching() throws IOException {
+        file = dir.resolve("members.csv");
+        Files.writeString(file, "MembershipNumber,CustomerName\n123456,John Smith\n", StandardCharsets.UTF_8);
+        watcher = new MembershipFileWatcher(file, new MembershipRepository.ChangeListener() {
+            @Override
+            public void memberAdded(int number, String customerName) {
+                index.add(number);
+                names.put(number, customerName);
+            }
+
+            @Override
+            public void reloaded() {
+                reloads.incrementAndGet();
+            }
+        });
+    }
+
+    @AfterEach
+    void stopWatching() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    void appendedMemberIsPickedUp() throws Exception {
+        append("234567,Jane Doe\n345678,Max Mustermann\n");
+
+        waitUntil(() -> index.contains(345678));
+        assertThat(index.contains(234567)).isTrue();
+        assertThat(names).containsEntry(234567, "Jane Doe").containsEntry(345678, "Max Mustermann");
+        // Rows that were there before watching started are not reported again
+        assertThat(index.contains(123456)).isFalse();
+        assertThat(reloads.get()).isZero();
+    }
+
+    @Test
+    void partialTrailingLineWaitsForItsNewline() throws Exception {
+        append("345678,Max Muster");
+        Thread.sleep(300);
+        assertThat(index.contains(345678)).isFalse();
+
+        append("mann\n");
+        waitUntil(() -> index.contains(345678));
+        assertThat(names).containsOnly(Map.entry(345678, "Max Mustermann"));
+        assertThat(reloads.get()).isZero();
+    }
+
+    @Test
+    void truncatedFileTriggersReload() throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate("MembershipNumber,CustomerName\n".length());
+        }
+
+        waitUntil(() -> reloads.get() > 0);
+        assertThat(index.size()).isZero();
+
+        // Appends after the rewrite are read from the new end of the file
+        append("234567,Jane Doe\n");
+        waitUntil(() -> index.contains(234567));
+    }
+
+    @Test
+    void recreatedFileTriggersReload() throws Exception {
+        Path replacement = dir.resolve("members.csv.tmp");
+        Files.writeString(replacement, "MembershipNumber,CustomerName\n123456,John Smith\n", StandardCharsets.UTF_8);
+        Files.delete(file);
+        Files.move(replacement, file);
+
+        waitUntil(() -> reloads.get() > 0);
+        assertThat(index.size()).isZero();
+    }
+
+    private void append(String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 10 s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MembershipJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private MembershipJournal journal;
+
+    @AfterEach
+    void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void futureCompletesOnlyAfterTheLineIsInTheFile() throws Exception {
+        Path file = dir.resolve("members.csv");
+        journal = new MembershipJournal(file, MembershipJournal.Durability.BATCH, 10, 64);
+
+        List<CompletableFuture<Boolean>> writtenWhenCompleted = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String line = String.format("%06d,Member %d%n", i, i);
+            // Runs on the writer thread right as the future completes
+            writtenWhenCompleted.add(journal.append(line).thenApply(ignored -> readFile(file).contains(line)));
+        }
+
+        for (CompletableFuture<Boolean> written : writtenWhenCompleted) {
+            assertThat(written.get(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void intervalModeCompletesAfterTheCoveringSync() throws Exception {
+        long opened = System.currentTimeMillis();
+        journal = new MembershipJournal(dir.resolve("members.csv"), MembershipJournal.Durability.INTERVAL, 300, 64);
+
+        journal.append("123456,John Smith\n").get(10, TimeUnit.SECONDS);
+
+        assertThat(System.currentTimeMillis() - opened).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void concurrentAppendsAreWrittenWholeAndOnce() throws Exception {
+        Path file = dir.resolve("members.csv");
+        journal = new MembershipJournal(file, MembershipJournal.Durability.BATCH, 10, 16);
+
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 1000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    CompletableFuture<Void> future = journal.append(String.format("%06d,Member %d%n", offset + i, offset + i));
+                    synchronized (appends) {
+                        appends.add(future);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(1000).doesNotHaveDuplicates();
+        assertThat(lines).allMatch(line -> line.matches("\\d{6},Member \\d+"));
+    }
+
+    @Test
+    void closeWritesEverythingAlreadyQueued() throws Exception {
+        Path file = dir.resolve("members.csv");
+        journal = new MembershipJournal(file, MembershipJournal.Durability.INTERVAL, 60_000, 8);
+
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            appends.add(journal.append(String.format("%06d,Member %d%n", i, i)));
+        }
+        journal.close();
+
+        for (CompletableFuture<Void> append : appends) {
+            assertThat(append).isCompleted();
+            append.get();
+        }
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).hasSize(500);
+        assertThatThrownBy(() -> journal.append("999999,Too Late\n").get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void writeErrorFailsEveryRecordOfTheBatch() throws Exception {
+        Path file = dir.resolve("members.csv");
+        journal = new MembershipJournal(file, MembershipJournal.Durability.BATCH, 10, 64);
+        // Swap in a closed channel so the next write throws
+        FileChannel broken = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        broken.close();
+        FileChannel original = (FileChannel) ReflectionTestUtils.getField(journal, "channel");
+        ReflectionTestUtils.setField(journal, "channel", broken);
+        original.close();
+
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            appends.add(journal.append(String.format("%06d,Member %d%n", i, i)));
+        }
+
+        for (CompletableFuture<Void> append : appends) {
+            assertThatThrownBy(() -> append.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(ClosedChannelException.class);
+        }
+        assertThat(Files.size(file)).isZero();
+
+        // The journal keeps working once the file is reopened
+        journal.reopen();
+        journal.append("123456,John Smith\n").get(10, TimeUnit.SECONDS);
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).containsExactly("123456,John Smith");
+    }
+
+    private static String readFile(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
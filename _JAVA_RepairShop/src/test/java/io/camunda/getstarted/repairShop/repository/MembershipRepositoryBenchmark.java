@@ -0,0 +1,107 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Compares the membership backends on the calls the service makes: single adds,
+ * name lookups and the full scan done at startup. Writes are not synced, so the
+ * numbers show the backends' own cost rather than the disk's.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark.args="MembershipRepositoryBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MembershipRepositoryBenchmark {
+
+    // Members written before each trial, numbers 0 to members - 1
+    private static final int MEMBERS = 10_000;
+
+    @Param({"csv", "mmap", "mvstore"})
+    public String type;
+
+    private Path dir;
+    private MembershipRepository repository;
+    private SplittableRandom random;
+    private int nextNumber;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Files.createTempDirectory("membership-benchmark");
+        switch (type) {
+            case "csv":
+                repository = new CsvMembershipRepository(dir.resolve("members.csv"),
+                        MembershipJournal.Durability.NONE, 10, 1000);
+                break;
+            case "mmap":
+                repository = new MappedMembershipRepository(dir.resolve("members.dat"), false);
+                break;
+            case "mvstore":
+                repository = new MVStoreMembershipRepository(dir.resolve("members.mv.db"), false);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown membership storage type: " + type);
+        }
+
+        Map<Integer, String> members = new LinkedHashMap<>();
+        for (int number = 0; number < MEMBERS; number++) {
+            members.put(number, "Member " + number);
+        }
+        repository.addAll(members).join();
+        random = new SplittableRandom(42);
+        nextNumber = MEMBERS;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        repository.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        // Stays clear of the seeded numbers and wraps before leaving the number space
+        int number = nextNumber++;
+        if (nextNumber == 1_000_000) {
+            nextNumber = MEMBERS;
+        }
+        repository.add(number, "New Member").join();
+    }
+
+    @Benchmark
+    public String findName() throws IOException {
+        return repository.findName(random.nextInt(MEMBERS));
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) throws IOException {
+        repository.forEach((number, customerName) -> blackhole.consume(customerName));
+    }
+}
@@ -0,0 +1,118 @@
+package io.camunda.getstarted.repairShop.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Behaviour every membership backend must share. Each backend runs the suite
+ * through a subclass that says how its store is opened.
+ */
+abstract class MembershipRepositoryContractTest {
+
+    @TempDir
+    Path dir;
+
+    private MembershipRepository repository;
+
+    /**
+     * Opens the backend's store in the given directory, reusing any file already there
+     */
+    abstract MembershipRepository open(Path dir) throws IOException;
+
+    @BeforeEach
+    void openRepository() throws IOException {
+        repository = open(dir);
+    }
+
+    @AfterEach
+    void closeRepository() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void newRepositoryIsEmpty() throws IOException {
+        assertThat(repository.isEmpty()).isTrue();
+        assertThat(readAll()).isEmpty();
+        assertThat(repository.findName(123456)).isNull();
+    }
+
+    @Test
+    void addedMemberExists() throws IOException {
+        repository.add(123456, "John Smith").join();
+
+        assertThat(repository.isEmpty()).isFalse();
+        assertThat(repository.findName(123456)).isEqualTo("John Smith");
+        assertThat(repository.findName(123457)).isNull();
+    }
+
+    @Test
+    void addAllStoresEveryMember() throws IOException {
+        Map<Integer, String> batch = new LinkedHashMap<>();
+        batch.put(7, "Ann Lee");
+        batch.put(999999, "Bob Stone");
+        batch.put(500000, "Cara Diaz");
+
+        repository.addAll(batch).join();
+
+        assertThat(readAll()).isEqualTo(new TreeMap<>(batch));
+        assertThat(repository.findName(999999)).isEqualTo("Bob Stone");
+    }
+
+    @Test
+    void forEachVisitsEveryMemberOnce() throws IOException {
+        for (int number = 100000; number < 100100; number++) {
+            repository.add(number, "Member " + number).join();
+        }
+
+        Map<Integer, String> members = readAll();
+        assertThat(members).hasSize(100);
+        assertThat(members.get(100042)).isEqualTo("Member 100042");
+    }
+
+    @Test
+    void importCsvLoadsRowsAndSkipsHeader() throws IOException {
+        Path csv = dir.resolve("import.csv");
+        Files.write(csv, Arrays.asList(CsvMembershipRepository.HEADER, "000001,Ann Lee", "000002,Bob Stone"),
+                StandardCharsets.UTF_8);
+
+        assertThat(repository.importCsv(csv)).isEqualTo(2);
+        assertThat(repository.findName(1)).isEqualTo("Ann Lee");
+        assertThat(repository.findName(2)).isEqualTo("Bob Stone");
+    }
+
+    @Test
+    void membersSurviveReopen() throws IOException {
+        repository.add(123456, "John Smith").join();
+        Map<Integer, String> batch = new LinkedHashMap<>();
+        batch.put(1, "Ann Lee");
+        batch.put(2, "Bob Stone");
+        repository.addAll(batch).join();
+        repository.close();
+
+        repository = open(dir);
+
+        assertThat(readAll()).containsOnlyKeys(1, 2, 123456);
+        assertThat(repository.findName(123456)).isEqualTo("John Smith");
+        assertThat(repository.findName(2)).isEqualTo("Bob Stone");
+    }
+
+    private Map<Integer, String> readAll() throws IOException {
+        Map<Integer, String> members = new TreeMap<>();
+        repository.forEach((number, customerName) ->
+                assertThat(members.put(number, customerName)).as("visited twice: %d", number).isNull());
+        return members;
+    }
+}
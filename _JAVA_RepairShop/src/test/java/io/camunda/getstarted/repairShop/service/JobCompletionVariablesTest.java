@@ -0,0 +1,96 @@
+package io.camunda.getstarted.repairShop.service;
+
+import io.camunda.zeebe.client.api.response.ActivatedJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobCompletionVariablesTest {
+
+    private final MockEnvironment environment = new MockEnvironment();
+
+    @Test
+    void deltaLeavesOutUnchangedFetchedVariables() {
+        Map<String, Object> fetched = new HashMap<>();
+        fetched.put("customerName", "Ann Lee");
+        fetched.put("price", 120);
+        fetched.put("vehicle", Map.of("make", "Ford", "year", 2015));
+        fetched.put("status", "new");
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("customerName", "Ann Lee");
+        variables.put("price", 120.0);
+        variables.put("vehicle", Map.of("make", "Ford", "year", 2015L));
+        variables.put("status", "approved");
+        variables.put("invoiceId", "in_123");
+
+        Map<String, Object> delta = completions("delta").forCompletion(job("generate-invoice"), fetched, variables);
+
+        assertThat(delta).containsOnlyKeys("status", "invoiceId");
+    }
+
+    @Test
+    void legacyAliasesAreSentEvenWhenUnchanged() {
+        environment.setProperty("worker.completion.legacy-aliases.generate-invoice", "CustomerName, customerName");
+        Map<String, Object> fetched = Map.of("customerName", "Ann Lee", "CustomerName", "Ann Lee", "price", 120);
+        Map<String, Object> variables = Map.of("customerName", "Ann Lee", "CustomerName", "Ann Lee", "price", 120);
+
+        JobCompletionVariables completions = completions("delta");
+
+        assertThat(completions.forCompletion(job("generate-invoice"), fetched, variables))
+                .containsOnlyKeys("customerName", "CustomerName");
+        assertThat(completions.forCompletion(job("check-membership"), fetched, variables)).isEmpty();
+    }
+
+    @Test
+    void fullModeSendsEveryResultVariable() {
+        Map<String, Object> variables = Map.of("customerName", "Ann Lee", "price", 120);
+
+        assertThat(completions(" FULL ").forCompletion(job("generate-invoice"), variables, variables))
+                .isSameAs(variables);
+    }
+
+    @Test
+    void numbersCompareByValue() {
+        assertThat(JobCompletionVariables.sameValue(120, 120.0)).isTrue();
+        assertThat(JobCompletionVariables.sameValue(120L, new BigDecimal("120.00"))).isTrue();
+        assertThat(JobCompletionVariables.sameValue(0.1, 0.1f)).isFalse();
+        assertThat(JobCompletionVariables.sameValue(120, 120.5)).isFalse();
+        assertThat(JobCompletionVariables.sameValue(Double.NaN, Double.NaN)).isTrue();
+        assertThat(JobCompletionVariables.sameValue(Double.NaN, 1.0)).isFalse();
+        assertThat(JobCompletionVariables.sameValue(120, "120")).isFalse();
+    }
+
+    @Test
+    void mapsListsAndArraysCompareElementWise() {
+        assertThat(JobCompletionVariables.sameValue(List.of(1, 2), new Object[]{1.0, 2L})).isTrue();
+        assertThat(JobCompletionVariables.sameValue(List.of(1, 2), List.of(2, 1))).isFalse();
+        assertThat(JobCompletionVariables.sameValue(List.of(1, 2), List.of(1))).isFalse();
+        assertThat(JobCompletionVariables.sameValue(
+                Map.of("items", List.of(Map.of("price", 10))),
+                Map.of("items", List.of(Map.of("price", 10.0))))).isTrue();
+        assertThat(JobCompletionVariables.sameValue(Map.of("a", 1), Map.of("b", 1))).isFalse();
+        assertThat(JobCompletionVariables.sameValue(Map.of("a", 1), Map.of("a", 1, "b", 2))).isFalse();
+        assertThat(JobCompletionVariables.sameValue(null, null)).isTrue();
+        assertThat(JobCompletionVariables.sameValue(null, Arrays.asList((Object) null))).isFalse();
+    }
+
+    private JobCompletionVariables completions(String mode) {
+        return new JobCompletionVariables(mode, environment);
+    }
+
+    private static ActivatedJob job(String type) {
+        ActivatedJob job = mock(ActivatedJob.class);
+        when(job.getType()).thenReturn(type);
+        return job;
+    }
+}
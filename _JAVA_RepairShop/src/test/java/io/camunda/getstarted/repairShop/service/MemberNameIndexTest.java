@@ -0,0 +1,58 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberNameIndexTest {
+
+    private final MemberNameIndex index = new MemberNameIndex();
+
+    @BeforeEach
+    void addMembers() {
+        index.add(999001, "John Smith");
+        index.add(123456, "Jane Smithers");
+        index.add(500000, "Johnny O'Brien");
+        index.add(42, "Mary-Jane  Johnson");
+        index.add(777777, "John Johnson");
+    }
+
+    @Test
+    void wordPrefixMatchesEveryWordItStarts() {
+        assertThat(index.find("smi", 10)).containsExactly(123456, 999001);
+        assertThat(index.find("john", 10)).containsExactly(42, 500000, 777777, 999001);
+        assertThat(index.find("johnny", 10)).containsExactly(500000);
+    }
+
+    @Test
+    void everyQueryWordMustMatchInAnyOrder() {
+        assertThat(index.find("smith john", 10)).containsExactly(999001);
+        assertThat(index.find("jo smi", 10)).containsExactly(999001);
+        assertThat(index.find("ja", 10)).containsExactly(123456);
+        assertThat(index.find("john smithers", 10)).isEmpty();
+        assertThat(index.find("john nobody", 10)).isEmpty();
+    }
+
+    @Test
+    void memberMatchingSeveralWordsIsReturnedOnce() {
+        // "jo" matches both words of "John Johnson"
+        assertThat(index.find("jo", 10)).containsExactly(42, 500000, 777777, 999001);
+        assertThat(index.find("jo johnson", 10)).containsExactly(42, 777777);
+    }
+
+    @Test
+    void caseWhitespaceAndPunctuationAreIgnored() {
+        assertThat(index.find("  OBRIEN ", 10)).containsExactly(500000);
+        assertThat(index.find("maryjane", 10)).containsExactly(42);
+        assertThat(index.find("SMITH,  John", 10)).containsExactly(999001);
+    }
+
+    @Test
+    void resultsAreCappedInAscendingOrder() {
+        assertThat(index.find("j", 2)).containsExactly(42, 123456);
+        assertThat(index.find("j", 0)).isEmpty();
+        assertThat(index.find("   ", 10)).isEmpty();
+        assertThat(index.find(null, 10)).isEmpty();
+    }
+}
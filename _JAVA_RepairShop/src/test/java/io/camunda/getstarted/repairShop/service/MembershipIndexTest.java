@@ -0,0 +1,119 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MembershipIndexTest {
+
+    private final MembershipIndex index = new MembershipIndex();
+
+    @Test
+    void concurrentClaimsNeverReturnTheSameNumber() throws Exception {
+        // Range spans several words and a partial last word, with a few numbers already taken
+        int lowerBound = 100;
+        int upperBound = 100 + 64 * 40 + 7;
+        for (int number = lowerBound; number < upperBound; number += 13) {
+            index.add(number);
+        }
+        int free = (upperBound - lowerBound) - index.size();
+
+        int threads = 8;
+        Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+        List<Integer> duplicates = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // Every thread starts in the same word so the compare-and-set races are real
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int number;
+                    while ((number = index.claimFree(lowerBound + 5, lowerBound, upperBound)) >= 0) {
+                        assertThat(number).isBetween(lowerBound, upperBound - 1);
+                        if (!claimed.add(number)) {
+                            synchronized (duplicates) {
+                                duplicates.add(number);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(duplicates).isEmpty();
+        assertThat(claimed).hasSize(free);
+        assertThat(index.size()).isEqualTo(upperBound - lowerBound);
+        for (int number = lowerBound; number < upperBound; number++) {
+            assertThat(index.contains(number)).isTrue();
+        }
+    }
+
+    @Test
+    void claimWrapsAroundToTheLowerBound() {
+        for (int number = 500; number < 600; number++) {
+            index.add(number);
+        }
+        index.add(10);
+
+        assertThat(index.claimFree(550, 10, 600)).isEqualTo(11);
+        assertThat(index.claimFree(450, 10, 600)).isEqualTo(450);
+    }
+
+    @Test
+    void fullRangeReturnsMinusOneAndLeavesTheRestAlone() {
+        for (int number = 64; number < 192; number++) {
+            index.add(number);
+        }
+
+        assertThat(index.claimFree(100, 64, 192)).isEqualTo(-1);
+        assertThat(index.size()).isEqualTo(128);
+        assertThat(index.contains(63)).isFalse();
+        assertThat(index.contains(192)).isFalse();
+
+        index.remove(150);
+        assertThat(index.claimFree(64, 64, 192)).isEqualTo(150);
+        assertThat(index.claimFree(64, 64, 192)).isEqualTo(-1);
+    }
+
+    @Test
+    void allocatorThrowsOnceItsBlockIsFull() {
+        MembershipNumberAllocator allocator = new MembershipNumberAllocator(0, 1);
+        for (int number = 1; number < MembershipIndex.CAPACITY; number++) {
+            allocator.markAllocated(number);
+        }
+        allocator.release(4242);
+
+        assertThat(allocator.allocate()).isEqualTo(4242);
+        assertThatThrownBy(allocator::allocate)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("000001-999999");
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThatThrownBy(() -> index.claimFree(5, 10, 20)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.claimFree(10, 10, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.claimFree(0, 0, MembershipIndex.CAPACITY + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,89 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripeCircuitBreakerTest {
+
+    // Opens after 3 outage failures in a row, for 100 ms, then lets 1 trial call through
+    private final StripeCircuitBreaker breaker = new StripeCircuitBreaker(3, 100, 1);
+
+    @Test
+    void goesFromClosedToOpenToHalfOpenToClosed() throws Exception {
+        failCalls(3, new IOException("Connection refused"));
+        assertThat(state()).isEqualTo("OPEN");
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.isAvailable()).isFalse();
+
+        Thread.sleep(150);
+        assertThat(breaker.isAvailable()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(state()).isEqualTo("HALF_OPEN");
+        // Only one trial call at a time
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onResult(null);
+        assertThat(state()).isEqualTo("CLOSED");
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getStats().get("opened")).isEqualTo(1L);
+        assertThat(breaker.getStats().get("rejected")).isEqualTo(2L);
+    }
+
+    @Test
+    void failedTrialCallOpensAgain() throws Exception {
+        failCalls(3, new SocketTimeoutException("Read timed out"));
+        Thread.sleep(150);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onResult(new StripeApiException(503, "{}", -1));
+
+        assertThat(state()).isEqualTo("OPEN");
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void clientErrorsAndRateLimitsAreNotOutages() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onResult(new StripeApiException(i % 2 == 0 ? 400 : 429, "{}", -1));
+        }
+
+        assertThat(state()).isEqualTo("CLOSED");
+        assertThat(breaker.getStats().get("consecutiveFailures")).isEqualTo(0);
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        failCalls(2, new IOException("Connection reset"));
+        breaker.tryAcquire();
+        breaker.onResult(null);
+        failCalls(2, new IOException("Connection reset"));
+
+        assertThat(state()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void classifiesOutages() {
+        assertThat(StripeCircuitBreaker.isOutage(new IOException("refused"))).isTrue();
+        assertThat(StripeCircuitBreaker.isOutage(new CompletionException(new StripeApiException(500, "{}", -1)))).isTrue();
+        assertThat(StripeCircuitBreaker.isOutage(new StripeUnavailableException("open"))).isTrue();
+        assertThat(StripeCircuitBreaker.isOutage(new StripeApiException(404, "{}", -1))).isFalse();
+        assertThat(StripeCircuitBreaker.isOutage(new IllegalStateException("bug"))).isFalse();
+    }
+
+    private void failCalls(int count, Throwable error) {
+        for (int i = 0; i < count; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onResult(error);
+        }
+    }
+
+    private Object state() {
+        return breaker.getStats().get("state");
+    }
+}
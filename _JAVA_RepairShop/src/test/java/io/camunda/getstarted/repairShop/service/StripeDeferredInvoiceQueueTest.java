@@ -0,0 +1,145 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.h2.mvstore.MVStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripeDeferredInvoiceQueueTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void queuedInvoicesSurviveReopen() throws Exception {
+        StripeDeferredInvoiceQueue queue = open();
+        assertThat(queue.add(invoice("job-1", 120.0))).isTrue();
+        Thread.sleep(2);
+        assertThat(queue.add(invoice("job-2", 80.5))).isTrue();
+        queue.close();
+
+        queue = open();
+        try {
+            List<StripeDeferredInvoiceQueue.DeferredInvoice> pending = queue.pending();
+            assertThat(pending).extracting(invoice -> invoice.invoiceKey).containsExactly("job-1", "job-2");
+            assertThat(pending.get(0).amount).isEqualTo(120.0);
+            assertThat(pending.get(0).processInstanceKey).isEqualTo("process-job-1");
+            assertThat(pending.get(0).deferredAt).isPositive();
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    void sameInvoiceIsQueuedOnce() throws IOException {
+        StripeDeferredInvoiceQueue queue = open();
+        try {
+            assertThat(queue.add(invoice("job-1", 120.0))).isTrue();
+            assertThat(queue.add(invoice("job-1", 999.0))).isFalse();
+
+            assertThat(queue.pending()).hasSize(1);
+            assertThat(queue.pending().get(0).amount).isEqualTo(120.0);
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    void removedAndParkedInvoicesStayThatWayAcrossReopen() throws IOException {
+        StripeDeferredInvoiceQueue queue = open();
+        queue.add(invoice("job-1", 120.0));
+        queue.add(invoice("job-2", 80.5));
+        queue.add(invoice("job-3", 45.0));
+        queue.remove("job-1");
+        queue.recordFailure("job-2", "invalid currency", 2);
+        queue.recordFailure("job-2", "invalid currency", 2);
+        queue.recordFailure("job-3", "invalid currency", 2);
+        queue.close();
+
+        queue = open();
+        try {
+            List<StripeDeferredInvoiceQueue.DeferredInvoice> pending = queue.pending();
+            assertThat(pending).extracting(invoice -> invoice.invoiceKey).containsExactly("job-3");
+            assertThat(pending.get(0).attempts).isEqualTo(1);
+            assertThat(pending.get(0).lastError).isEqualTo("invalid currency");
+            assertThat(queue.getStats()).containsEntry("queued", 1L).containsEntry("parked", 1L);
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    void nextReturnsTheOldestInvoiceThatIsNotSkipped() throws IOException {
+        StripeDeferredInvoiceQueue queue = open();
+        try {
+            assertThat(queue.next(invoiceKey -> false)).isNull();
+            queue.add(invoice("job-3", 45.0));
+            queue.add(invoice("job-1", 120.0));
+            queue.add(invoice("job-2", 80.5));
+
+            assertThat(queue.next(invoiceKey -> false).invoiceKey).isEqualTo("job-3");
+            assertThat(queue.next(Set.of("job-3")::contains).invoiceKey).isEqualTo("job-1");
+            assertThat(queue.next(Set.of("job-3", "job-1", "job-2")::contains)).isNull();
+
+            queue.recordFailure("job-3", "invalid currency", 1);
+            queue.remove("job-1");
+            assertThat(queue.next(invoiceKey -> false).invoiceKey).isEqualTo("job-2");
+            assertThat(queue.getStats()).containsEntry("queued", 1L).containsEntry("parked", 1L);
+
+            // Positions keep growing after the head of the queue was removed
+            queue.add(invoice("job-4", 10.0));
+            assertThat(queue.pending()).extracting(invoice -> invoice.invoiceKey).containsExactly("job-2", "job-4");
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    void orderIsRebuiltForAQueueFileWithoutOne() throws Exception {
+        StripeDeferredInvoiceQueue queue = open();
+        queue.add(invoice("job-1", 120.0));
+        Thread.sleep(2);
+        queue.add(invoice("job-2", 80.5));
+        queue.add(invoice("job-3", 45.0));
+        queue.recordFailure("job-3", "invalid currency", 1);
+        queue.close();
+
+        try (MVStore store = new MVStore.Builder().fileName(dir.resolve("deferred.mv.db").toString()).open()) {
+            store.removeMap("order");
+            store.commit();
+        }
+
+        queue = open();
+        try {
+            assertThat(queue.pending()).extracting(invoice -> invoice.invoiceKey).containsExactly("job-1", "job-2");
+            assertThat(queue.getStats()).containsEntry("queued", 2L).containsEntry("parked", 1L);
+            queue.remove("job-1");
+            queue.add(invoice("job-4", 10.0));
+            assertThat(queue.pending()).extracting(invoice -> invoice.invoiceKey).containsExactly("job-2", "job-4");
+        } finally {
+            queue.close();
+        }
+    }
+
+    private StripeDeferredInvoiceQueue open() throws IOException {
+        return new StripeDeferredInvoiceQueue(dir.resolve("deferred.mv.db").toString());
+    }
+
+    private static StripeDeferredInvoiceQueue.DeferredInvoice invoice(String invoiceKey, double amount) {
+        StripeDeferredInvoiceQueue.DeferredInvoice invoice = new StripeDeferredInvoiceQueue.DeferredInvoice();
+        invoice.invoiceKey = invoiceKey;
+        invoice.processInstanceKey = "process-" + invoiceKey;
+        invoice.customerEmail = "ann@example.com";
+        invoice.customerName = "Ann Lee";
+        invoice.description = "Brake pads";
+        invoice.vehicleDetails = "Ford Focus";
+        invoice.amount = amount;
+        return invoice;
+    }
+}
@@ -0,0 +1,50 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripePayloadLoggerTest {
+
+    private final StripePayloadLogger payloadLogger = new StripePayloadLogger(true, 1.0, 1024,
+            new String[] {"email", "name", "customer_email", " line1 ", ""});
+
+    @Test
+    void redactsJsonStringValuesOfListedFields() {
+        String json = "{\"id\":\"cus_123\",\"email\":\"john@example.com\",\"name\" : \"John \\\"JJ\\\" Smith\","
+                + "\"address\":{\"line1\":\"1 High St\",\"city\":\"Leeds\"},\"customer_email\":\"j@example.com\"}";
+
+        assertThat(payloadLogger.redactJson(json)).isEqualTo(
+                "{\"id\":\"cus_123\",\"email\":\"[REDACTED]\",\"name\" : \"[REDACTED]\","
+                + "\"address\":{\"line1\":\"[REDACTED]\",\"city\":\"Leeds\"},\"customer_email\":\"[REDACTED]\"}");
+    }
+
+    @Test
+    void leavesUnlistedAndNonStringJsonValuesAlone() {
+        String json = "{\"username\":\"jsmith\",\"name\":null,\"amount\":1200}";
+
+        assertThat(payloadLogger.redactJson(json)).isEqualTo(json);
+        assertThat(payloadLogger.redactJson(null)).isEmpty();
+    }
+
+    @Test
+    void redactsFormAndQueryValuesOfListedFields() {
+        assertThat(payloadLogger.redactForm("email=john%40example.com&name=John+Smith&currency=gbp"))
+                .isEqualTo("email=[REDACTED]&name=[REDACTED]&currency=gbp");
+        assertThat(payloadLogger.redactForm("limit=1&email=john%40example.com"))
+                .isEqualTo("limit=1&email=[REDACTED]");
+    }
+
+    @Test
+    void matchesWholeFormFieldNamesOnly() {
+        assertThat(payloadLogger.redactForm("nickname=JJ&description=Brakes"))
+                .isEqualTo("nickname=JJ&description=Brakes");
+    }
+
+    @Test
+    void masksEmailsForOrdinaryLogLines() {
+        assertThat(StripePayloadLogger.maskEmail("john@example.com")).isEqualTo("j***@example.com");
+        assertThat(StripePayloadLogger.maskEmail("not-an-email")).isEqualTo("***");
+        assertThat(StripePayloadLogger.maskEmail(null)).isNull();
+    }
+}
@@ -0,0 +1,103 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripeRateLimiterTest {
+
+    private StripeRateLimiter limiter;
+
+    @AfterEach
+    void close() {
+        limiter.close();
+    }
+
+    @Test
+    void burstIsAdmittedAtOnceThenTokensRefillAtTheConfiguredRate() throws Exception {
+        // 10 per second, one token every 100 ms
+        limiter = new StripeRateLimiter(10, 2, 32, 1, 32, 500);
+
+        assertThat(limiter.acquire()).isDone();
+        assertThat(limiter.acquire()).isDone();
+
+        long started = System.nanoTime();
+        CompletableFuture<Void> third = limiter.acquire();
+        assertThat(third).isNotDone();
+        third.get(2, TimeUnit.SECONDS);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    void callsBeyondTheInFlightLimitWaitForARelease() {
+        limiter = new StripeRateLimiter(1000, 100, 2, 1, 32, 500);
+
+        limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<Void> third = limiter.acquire();
+        assertThat(third).isNotDone();
+
+        limiter.onFailure();
+        assertThat(third).isDone();
+    }
+
+    @Test
+    void rateLimitHalvesTheInFlightLimitOncePerBackoffWindow() {
+        limiter = new StripeRateLimiter(1000, 100, 8, 1, 32, 500);
+        List<CompletableFuture<Void>> permits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            permits.add(limiter.acquire());
+        }
+        assertThat(permits).allMatch(CompletableFuture::isDone);
+
+        // The same 429 burst seen by four calls in flight
+        for (int i = 0; i < 4; i++) {
+            limiter.onRateLimited(1000, 0);
+        }
+
+        assertThat(limiter.getStats().get("concurrencyLimit")).isEqualTo(4);
+        assertThat(limiter.getStats().get("rateLimited")).isEqualTo(4L);
+        assertThat(limiter.getStats().get("inFlight")).isEqualTo(4);
+    }
+
+    @Test
+    void retryAfterPausesEveryAdmission() throws Exception {
+        limiter = new StripeRateLimiter(1000, 100, 8, 1, 32, 500);
+        limiter.acquire();
+
+        long started = System.nanoTime();
+        assertThat(limiter.onRateLimited(300, 0)).isEqualTo(300);
+        CompletableFuture<Void> next = limiter.acquire();
+
+        Thread.sleep(100);
+        assertThat(next).isNotDone();
+        next.get(2, TimeUnit.SECONDS);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(250);
+    }
+
+    @Test
+    void permitCancelledWhileBeingAdmittedHandsItsSlotBack() throws Exception {
+        limiter = new StripeRateLimiter(1000, 100, 4, 1, 4, 500);
+        limiter.acquire();
+        // Pause admissions so the next two permits are admitted by the same drain pass
+        limiter.onRateLimited(100, 0);
+        CompletableFuture<Void> first = limiter.acquire();
+        CompletableFuture<Void> second = limiter.acquire();
+        // Runs as the first permit completes, after the second was admitted but before it is completed
+        first.thenRun(() -> second.cancel(false));
+
+        first.get(2, TimeUnit.SECONDS);
+
+        assertThat(second).isCancelled();
+        assertThat(limiter.getStats().get("inFlight")).isEqualTo(1);
+        assertThat(limiter.getStats().get("admitted")).isEqualTo(2L);
+        limiter.onSuccess();
+        assertThat(limiter.getStats().get("inFlight")).isEqualTo(0);
+    }
+}
@@ -0,0 +1,108 @@
+package io.camunda.getstarted.repairShop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeRequestHedgerTest {
+
+    private static final String ENDPOINT = "POST /v1/invoices";
+
+    private StripeRequestHedger hedger;
+
+    @BeforeEach
+    void createHedger() {
+        // Hedge after 20 ms once the endpoint has one sample
+        hedger = new StripeRequestHedger(true, 95, 20, 16, 1);
+        hedger.recordLatency(ENDPOINT, 5);
+    }
+
+    @AfterEach
+    void close() {
+        hedger.close();
+    }
+
+    @Test
+    void callsAreNotHedgedWithoutEnoughSamples() {
+        assertThat(hedger.hedgeDelay("GET /v1/customers")).isEqualTo(-1);
+        assertThat(hedger.hedgeDelay(ENDPOINT)).isEqualTo(20);
+    }
+
+    @Test
+    void firstSuccessWins() throws Exception {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+
+        CompletableFuture<String> result = hedger.hedge(ENDPOINT, () -> primary,
+                race -> CompletableFuture.completedFuture("hedge"));
+
+        assertThat(result.get(2, TimeUnit.SECONDS)).isEqualTo("hedge");
+        primary.complete("primary");
+        assertThat(result.get()).isEqualTo("hedge");
+        assertThat(hedger.getStats().get("hedgesFired")).isEqualTo(1L);
+        assertThat(hedger.getStats().get("hedgesWon")).isEqualTo(1L);
+    }
+
+    @Test
+    void fastCallIsNotHedged() throws Exception {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        AtomicReference<Boolean> hedged = new AtomicReference<>(false);
+
+        CompletableFuture<String> result = hedger.hedge(ENDPOINT, () -> primary, race -> {
+            hedged.set(true);
+            return new CompletableFuture<>();
+        });
+        primary.complete("primary");
+
+        assertThat(result.get()).isEqualTo("primary");
+        Thread.sleep(100);
+        assertThat(hedged.get()).isFalse();
+    }
+
+    @Test
+    void primaryErrorIsReportedWhenBothFail() throws Exception {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> duplicate = new CompletableFuture<>();
+        CompletableFuture<CompletableFuture<String>> hedgeStarted = new CompletableFuture<>();
+
+        CompletableFuture<String> result = hedger.hedge(ENDPOINT, () -> primary, race -> {
+            hedgeStarted.complete(race);
+            return duplicate;
+        });
+        hedgeStarted.get(2, TimeUnit.SECONDS);
+
+        duplicate.completeExceptionally(new IOException("hedge failed"));
+        assertThat(result).isNotDone();
+        primary.completeExceptionally(new IOException("primary failed"));
+
+        assertThatThrownBy(result::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("primary failed");
+    }
+
+    @Test
+    void hedgeIsToldWhenTheRaceIsDecided() throws Exception {
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<CompletableFuture<String>> hedgeStarted = new CompletableFuture<>();
+
+        CompletableFuture<String> result = hedger.hedge(ENDPOINT, () -> primary, race -> {
+            hedgeStarted.complete(race);
+            return new CompletableFuture<>();
+        });
+        CompletableFuture<String> race = hedgeStarted.get(2, TimeUnit.SECONDS);
+        assertThat(race).isNotDone();
+
+        primary.complete("primary");
+
+        assertThat(result.get()).isEqualTo("primary");
+        assertThat(race).isDone();
+    }
+}
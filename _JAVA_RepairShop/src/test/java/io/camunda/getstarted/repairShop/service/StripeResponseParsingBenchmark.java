@@ -0,0 +1,59 @@
+package io.camunda.getstarted.repairShop.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a full Stripe invoice response into a Map, as the invoice pipeline used
+ * to, against the typed StripeResponses readers it uses now. Run with -prof gc to
+ * compare allocation per parse (gc.alloc.rate.norm):
+ *
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="StripeResponseParsingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StripeResponseParsingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader invoiceReader = objectMapper.readerFor(StripeResponses.Invoice.class);
+
+    private String invoiceJson;
+
+    @Setup
+    public void load() throws IOException {
+        try (InputStream in = StripeResponseParsingBenchmark.class.getResourceAsStream("/stripe/invoice.json")) {
+            invoiceJson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> mapTypeReference() throws IOException {
+        return objectMapper.readValue(invoiceJson, new TypeReference<Map<String, Object>>() { });
+    }
+
+    @Benchmark
+    public StripeResponses.Invoice typedReader() throws IOException {
+        return invoiceReader.readValue(invoiceJson);
+    }
+}
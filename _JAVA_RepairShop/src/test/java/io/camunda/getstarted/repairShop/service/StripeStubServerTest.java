@@ -0,0 +1,109 @@
+package io.camunda.getstarted.repairShop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripeStubServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    // Created outside Spring, so latency and injected failures are all off
+    private StripeStubServer stub;
+
+    @BeforeEach
+    void start() throws IOException {
+        stub = new StripeStubServer(0, 4);
+        stub.start();
+    }
+
+    @AfterEach
+    void close() {
+        stub.close();
+    }
+
+    @Test
+    void repeatedIdempotencyKeyReplaysTheFirstResponse() throws Exception {
+        HttpResponse<String> first = post("/customers", "email=ann%40example.com&name=Ann", "key-1");
+        HttpResponse<String> replay = post("/customers", "email=bob%40example.com&name=Bob", "key-1");
+
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(replay.statusCode()).isEqualTo(200);
+        assertThat(replay.body()).isEqualTo(first.body());
+        assertThat(replay.headers().firstValue("Idempotent-Replayed")).hasValue("true");
+        assertThat(first.headers().firstValue("Idempotent-Replayed")).isEmpty();
+        assertThat(stub.getStats().get("replayed")).isEqualTo(1L);
+    }
+
+    @Test
+    void newIdempotencyKeyCreatesANewObject() throws Exception {
+        JsonNode first = json(post("/customers", "email=ann%40example.com&name=Ann", "key-1"));
+        JsonNode second = json(post("/customers", "email=ann%40example.com&name=Ann", "key-2"));
+
+        assertThat(second.get("id").asText()).isNotEqualTo(first.get("id").asText());
+        assertThat(stub.getStats().get("replayed")).isEqualTo(0L);
+    }
+
+    @Test
+    void createdCustomerIsFoundByEmail() throws Exception {
+        JsonNode customer = json(post("/customers", "email=ann%40example.com&name=Ann", null));
+
+        JsonNode found = json(client.send(HttpRequest.newBuilder(uri("/customers?email=ann%40example.com&limit=1")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()));
+
+        assertThat(found.get("data")).hasSize(1);
+        assertThat(found.get("data").get(0).get("id").asText()).isEqualTo(customer.get("id").asText());
+    }
+
+    @Test
+    void invoiceIncludesPendingItemsAndIsFinalized() throws Exception {
+        String customerId = json(post("/customers", "email=ann%40example.com&name=Ann", null)).get("id").asText();
+        post("/invoiceitems", "customer=" + customerId + "&amount=1200&currency=gbp&description=Brakes", null);
+
+        JsonNode invoice = json(post("/invoices", "customer=" + customerId + "&pending_invoice_items_behavior=include", null));
+        assertThat(invoice.get("amount_due").asLong()).isEqualTo(1200);
+        assertThat(invoice.get("status").asText()).isEqualTo("draft");
+
+        JsonNode finalized = json(post("/invoices/" + invoice.get("id").asText() + "/finalize", "", null));
+        assertThat(finalized.get("status").asText()).isEqualTo("open");
+        assertThat(finalized.get("hosted_invoice_url").isNull()).isFalse();
+    }
+
+    @Test
+    void unknownEndpointIsNotFoundAndFreesItsIdempotencyKey() throws Exception {
+        assertThat(post("/refunds", "amount=100", "key-1").statusCode()).isEqualTo(404);
+        assertThat(post("/customers", "email=ann%40example.com&name=Ann", "key-1").headers()
+                .firstValue("Idempotent-Replayed")).isEmpty();
+        assertThat(stub.getStats().get("connections")).isGreaterThanOrEqualTo(1L);
+    }
+
+    private HttpResponse<String> post(String path, String form, String idempotencyKey) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + stub.getPort() + "/v1" + path);
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws IOException {
+        assertThat(response.statusCode()).isEqualTo(200);
+        return objectMapper.readTree(response.body());
+    }
+}